@@ -0,0 +1,103 @@
+package algorithms;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Inserts, searches and deletes on AVLTree and IntAVLTree, for key streams
+ * in sorted, random and adversarial orders. The IntAVLTree used for inserts
+ * is cleared and refilled, so its pool is only allocated once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AVLTreeBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({KeyStreams.SORTED, KeyStreams.RANDOM, KeyStreams.ZIGZAG})
+    public String order;
+
+    @Param({"100000"})
+    public int size;
+
+    private int[] keys;
+    private int[] probes; // half present, half absent
+    private AVLTree tree;
+    private Node root; // tree of all keys, for searches
+    private IntAVLTree intTree; // tree of all keys, for searches
+    private IntAVLTree scratch; // refilled by each insert
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.keys = KeyStreams.keys(this.order, this.size, SEED);
+        this.probes = KeyStreams.keys(KeyStreams.RANDOM, 2 * this.size,
+                SEED + 1);
+        this.tree = new AVLTree();
+        this.root = null;
+        for(int key : this.keys)
+            this.root = this.tree.insert(key, this.root);
+        this.intTree = new IntAVLTree(this.size);
+        for(int key : this.keys)
+            this.intTree.insert(key);
+        this.scratch = new IntAVLTree(this.size);
+    }
+
+    @Benchmark
+    public Node insert() {
+        Node result = null;
+        for(int key : this.keys)
+            result = this.tree.insert(key, result);
+        return result;
+    }
+
+    @Benchmark
+    public int search() {
+        int found = 0;
+        for(int key : this.probes)
+            if(this.tree.search(key, this.root))
+                found++;
+        return found;
+    }
+
+    @Benchmark
+    public Node insertThenDelete() {
+        Node result = null;
+        for(int key : this.keys)
+            result = this.tree.insert(key, result);
+        for(int key : this.keys)
+            result = this.tree.delete(key, result);
+        return result;
+    }
+
+    @Benchmark
+    public int intInsert() {
+        this.scratch.clear();
+        for(int key : this.keys)
+            this.scratch.insert(key);
+        return this.scratch.size();
+    }
+
+    @Benchmark
+    public int intSearch() {
+        int found = 0;
+        for(int key : this.probes)
+            if(this.intTree.search(key))
+                found++;
+        return found;
+    }
+
+    @Benchmark
+    public int intInsertThenDelete() {
+        this.scratch.clear();
+        for(int key : this.keys)
+            this.scratch.insert(key);
+        for(int key : this.keys)
+            this.scratch.delete(key);
+        return this.scratch.size();
+    }
+}
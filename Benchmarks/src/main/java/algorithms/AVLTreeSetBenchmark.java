@@ -0,0 +1,86 @@
+package algorithms;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Building and merging whole AVLTrees: bulk build from sorted keys against
+ * inserting them one by one, and union of 2 trees against inserting the
+ * keys of one into the other. Set operations consume their inputs, so each
+ * call builds them first, and buildBoth measures that part alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AVLTreeSetBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"1000000"})
+    public int size;
+
+    private int[] first; // sorted, half of them also in second
+    private int[] second;
+    private AVLTree tree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] keys = KeyStreams.keys(KeyStreams.RANDOM, 3 * this.size / 2,
+                SEED);
+        this.first = Arrays.copyOfRange(keys, 0, this.size);
+        this.second = Arrays.copyOfRange(keys, this.size / 2,
+                3 * this.size / 2);
+        Arrays.sort(this.first);
+        Arrays.sort(this.second);
+        this.tree = new AVLTree();
+    }
+
+    @Benchmark
+    public Node build() {
+        return this.tree.build(this.first);
+    }
+
+    @Benchmark
+    public Node insertAll() {
+        Node root = null;
+        for(int key : this.first)
+            root = this.tree.insert(key, root);
+        return root;
+    }
+
+    @Benchmark
+    public int buildBoth() {
+        return this.tree.build(this.first).height
+                + this.tree.build(this.second).height;
+    }
+
+    @Benchmark
+    public Node union() {
+        return this.tree.union(this.tree.build(this.first),
+                this.tree.build(this.second));
+    }
+
+    @Benchmark
+    public Node intersection() {
+        return this.tree.intersection(this.tree.build(this.first),
+                this.tree.build(this.second));
+    }
+
+    @Benchmark
+    public Node difference() {
+        return this.tree.difference(this.tree.build(this.first),
+                this.tree.build(this.second));
+    }
+
+    @Benchmark
+    public Node unionByInsert() {
+        Node root = this.tree.build(this.first);
+        for(int key : this.second)
+            root = this.tree.insert(key, root);
+        return root;
+    }
+}
@@ -0,0 +1,122 @@
+package algorithms;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Order statistics and range queries on AugmentedAVLTree, against answering
+ * them with an In-Order walk of an AVLTree holding the same keys. Each call
+ * answers QUERIES queries over ranges of about width keys. insert measures
+ * the cost of keeping sizes and sums up to date.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AugmentedAVLTreeBenchmark {
+
+    private static final long SEED = 42;
+    private static final int QUERIES = 1000;
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"100", "10000"})
+    public int width;
+
+    private int[] keys;
+    private int[] lows; // start of each queried range
+    private AugmentedAVLTree tree;
+    private AugmentedAVLTree.RangeCursor cursor;
+    private AVLTree plainTree;
+    private Node plainRoot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.keys = KeyStreams.keys(KeyStreams.RANDOM, this.size, SEED);
+        int[] sorted = this.keys.clone();
+        Arrays.sort(sorted);
+        Random random = new Random(SEED + 1);
+        this.lows = new int[QUERIES];
+        for(int i = 0; i < QUERIES; i++)
+            this.lows[i] = random.nextInt(this.size);
+        this.tree = new AugmentedAVLTree();
+        for(int key : this.keys)
+            this.tree.insert(key);
+        this.cursor = this.tree.cursor();
+        this.plainTree = new AVLTree();
+        this.plainRoot = this.plainTree.build(sorted);
+    }
+
+    @Benchmark
+    public int insert() {
+        AugmentedAVLTree result = new AugmentedAVLTree();
+        for(int key : this.keys)
+            result.insert(key);
+        return result.size();
+    }
+
+    @Benchmark
+    public long rankAndSelect() {
+        long total = 0;
+        for(int lo : this.lows)
+            total += this.tree.select(this.tree.rank(lo));
+        return total;
+    }
+
+    @Benchmark
+    public long countInRange() {
+        long total = 0;
+        for(int lo : this.lows)
+            total += this.tree.countInRange(lo, hi(lo));
+        return total;
+    }
+
+    @Benchmark
+    public long sumInRange() {
+        long total = 0;
+        for(int lo : this.lows)
+            total += this.tree.sumInRange(lo, hi(lo));
+        return total;
+    }
+
+    @Benchmark
+    public long cursorSum() {
+        long total = 0;
+        for(int lo : this.lows)
+            for(this.cursor.reset(lo, hi(lo)); this.cursor.hasNext(); )
+                total += this.cursor.next();
+        return total;
+    }
+
+    @Benchmark
+    public long walkCountInRange() {
+        long total = 0;
+        for(int lo : this.lows)
+            total += walkCount(this.plainRoot, lo, hi(lo));
+        return total;
+    }
+
+    // Keys are 0 to size - 1, so the range holds width keys, fewer near the
+    // end
+    private int hi(int lo) {
+        return lo + this.width - 1;
+    }
+
+    // In-Order walk of the keys from lo to hi, skipping subtrees outside
+    private static int walkCount(Node node, int lo, int hi) {
+        if(node == null)
+            return 0;
+        int count = 0;
+        if(node.value > lo)
+            count += walkCount(node.left, lo, hi);
+        if(node.value >= lo && node.value <= hi)
+            count++;
+        if(node.value < hi)
+            count += walkCount(node.right, lo, hi);
+        return count;
+    }
+}
@@ -0,0 +1,64 @@
+package algorithms;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Hop distances with ParallelBFS, against DijkstraAlgo on the same graph,
+ * which is how they were computed before. The generated graphs store every
+ * edge in both directions, so the graph is its own reverse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BfsBenchmark {
+
+    private static final long SEED = 42;
+    private static final int NUM_SOURCES = 16;
+
+    @Param({GraphGenerators.RANDOM, GraphGenerators.GRID,
+            GraphGenerators.RMAT})
+    public String shape;
+
+    @Param({"100000"})
+    public int vertices;
+
+    private CSRGraph graph;
+    private ParallelBFS bfs;
+    private DijkstraAlgo dijkstra;
+    private int[] sources;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.graph = GraphGenerators.undirected(this.shape, this.vertices,
+                SEED).freeze();
+        this.bfs = new ParallelBFS(this.graph, this.graph,
+                ForkJoinPool.commonPool());
+        this.dijkstra = new DijkstraAlgo(this.graph);
+        this.sources = KeyStreams.keys(KeyStreams.RANDOM,
+                this.graph.numVertices(), SEED);
+        this.next = 0;
+    }
+
+    @Benchmark
+    public ShortestPaths bfs() {
+        return this.bfs.search(nextSource());
+    }
+
+    @Benchmark
+    public ShortestPaths dijkstra() {
+        return this.dijkstra.computeShortestPathTree(nextSource());
+    }
+
+    private int nextSource() {
+        int source = this.sources[this.next];
+        this.next = (this.next + 1) % NUM_SOURCES;
+        return source;
+    }
+}
@@ -0,0 +1,106 @@
+package algorithms;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Read-heavy mixed traffic, 7 threads searching while 1 thread inserts and
+ * deletes, on ConcurrentAVLTree and on an AVLTree behind a global lock.
+ * Each benchmark method is a single operation, so times are in
+ * microseconds. Half the searched keys are present.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentAVLTreeBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"1000000"})
+    public int size;
+
+    private int[] keys; // the first half starts in the trees
+    private ConcurrentAVLTree tree;
+    private AVLTree lockedTree;
+    private Node lockedRoot; // guarded by lockedTree
+
+    /**
+     * Position of each thread in keys, starting from a different place for
+     * each thread.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentAVLTreeBenchmark benchmark) {
+            this.next = new SplittableRandom(SEED
+                    + Thread.currentThread().getId())
+                    .nextInt(benchmark.keys.length);
+        }
+
+        int next(int[] keys) {
+            int key = keys[this.next];
+            this.next = this.next + 1 == keys.length ? 0 : this.next + 1;
+            return key;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.keys = KeyStreams.keys(KeyStreams.RANDOM, 2 * this.size, SEED);
+        this.tree = new ConcurrentAVLTree();
+        this.lockedTree = new AVLTree();
+        this.lockedRoot = null;
+        for(int i = 0; i < this.size; i++) {
+            this.tree.insert(this.keys[i]);
+            this.lockedRoot = this.lockedTree.insert(this.keys[i],
+                    this.lockedRoot);
+        }
+    }
+
+    @Benchmark
+    @Group("optimistic")
+    @GroupThreads(7)
+    public boolean optimisticSearch(Cursor cursor) {
+        return this.tree.search(cursor.next(this.keys));
+    }
+
+    @Benchmark
+    @Group("optimistic")
+    @GroupThreads(1)
+    public boolean optimisticUpdate(Cursor cursor) {
+        int key = cursor.next(this.keys);
+        return this.tree.insert(key) || this.tree.delete(key);
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(7)
+    public boolean lockedSearch(Cursor cursor) {
+        int key = cursor.next(this.keys);
+        synchronized(this.lockedTree) {
+            return this.lockedTree.search(key, this.lockedRoot);
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public boolean lockedUpdate(Cursor cursor) {
+        int key = cursor.next(this.keys);
+        synchronized(this.lockedTree) {
+            if(this.lockedTree.search(key, this.lockedRoot)) {
+                this.lockedRoot = this.lockedTree.delete(key,
+                        this.lockedRoot);
+                return false;
+            }
+            this.lockedRoot = this.lockedTree.insert(key, this.lockedRoot);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package algorithms;
+
+import java.util.*;
+
+/**
+ * Reproducible synthetic graphs for the benchmarks. The same arguments and
+ * seed always give the same graph.
+ * Undirected graphs are stored with an edge in each direction, as the MST
+ * algorithms expect.
+ */
+final class GraphGenerators {
+
+    /**
+     * Shapes accepted by undirected, for use as a JMH @Param.
+     * RANDOM: a random spanning path plus uniformly random edges.
+     * GRID: a square 4-neighbour grid, with a long diameter.
+     * RMAT: a power-law graph with a few very high degree vertices.
+     */
+    static final String RANDOM = "RANDOM";
+    static final String GRID = "GRID";
+    static final String RMAT = "RMAT";
+
+    private static final int MAX_WEIGHT = 1000;
+    private static final int AVERAGE_DEGREE = 8; // edges per vertex, in each
+    // direction
+
+    private GraphGenerators() {}
+
+    /**
+     * @return a connected undirected graph of the given shape with about
+     * numVertices vertices (GRID rounds down to a square).
+     */
+    static DirectedGraph undirected(String shape, int numVertices, long seed) {
+        switch(shape) {
+            case RANDOM:
+                return randomUndirected(numVertices,
+                        (long) numVertices * AVERAGE_DEGREE / 2, seed);
+            case GRID:
+                int side = (int) Math.sqrt(numVertices);
+                return grid(side, side, seed);
+            case RMAT:
+                return rmat(numVertices, (long) numVertices * AVERAGE_DEGREE
+                        / 2, true, seed);
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+    }
+
+    /**
+     * Random undirected graph: a path through all vertices in random order,
+     * so the graph is connected, plus random edges up to numEdges.
+     */
+    static DirectedGraph randomUndirected(int numVertices, long numEdges,
+                                         long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        DirectedGraph graph = new DirectedGraph(numVertices);
+        int[] perm = permutation(numVertices, random);
+        for(int i = 1; i < numVertices; i++)
+            addUndirected(graph, perm[i - 1], perm[i], random);
+        for(long i = numVertices - 1; i < numEdges; i++) {
+            int from = random.nextInt(numVertices);
+            int to = random.nextInt(numVertices);
+            if(from != to)
+                addUndirected(graph, from, to, random);
+        }
+        return graph;
+    }
+
+    /**
+     * Grid of rows x cols vertices, each connected to its 4 neighbours.
+     */
+    static DirectedGraph grid(int rows, int cols, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        DirectedGraph graph = new DirectedGraph(rows * cols);
+        for(int r = 0; r < rows; r++)
+            for(int c = 0; c < cols; c++) {
+                int v = r * cols + c;
+                if(c + 1 < cols)
+                    addUndirected(graph, v, v + 1, random);
+                if(r + 1 < rows)
+                    addUndirected(graph, v, v + cols, random);
+            }
+        return graph;
+    }
+
+    /**
+     * R-MAT graph with the Graph500 parameters (a, b, c) = (0.57, 0.19,
+     * 0.19). Each edge picks a quadrant of the adjacency matrix recursively,
+     * which gives a power-law degree distribution. Vertex ids are shuffled
+     * so high degree vertices are not all at small ids. If undirected, a
+     * random spanning path is added so the graph is connected.
+     */
+    static DirectedGraph rmat(int numVertices, long numEdges,
+                              boolean undirected, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        DirectedGraph graph = new DirectedGraph(numVertices);
+        int scale = 32 - Integer.numberOfLeadingZeros(Math.max(numVertices - 1,
+                1));
+        int[] perm = permutation(numVertices, random);
+        long added = 0;
+        if(undirected) {
+            for(int i = 1; i < numVertices; i++)
+                addUndirected(graph, perm[i - 1], perm[i], random);
+            added = numVertices - 1;
+        }
+        while(added < numEdges) {
+            int from = 0;
+            int to = 0;
+            for(int bit = 0; bit < scale; bit++) {
+                double p = random.nextDouble();
+                from <<= 1;
+                to <<= 1;
+                if(p < 0.57) // top left quadrant
+                    continue;
+                if(p < 0.76)
+                    to |= 1;
+                else if(p < 0.95)
+                    from |= 1;
+                else {
+                    from |= 1;
+                    to |= 1;
+                }
+            }
+            if(from >= numVertices || to >= numVertices || from == to)
+                continue;
+            if(undirected)
+                addUndirected(graph, perm[from], perm[to], random);
+            else
+                graph.addEdge(perm[from], perm[to],
+                        1 + random.nextInt(MAX_WEIGHT));
+            added++;
+        }
+        return graph;
+    }
+
+    /**
+     * Random directed acyclic graph: vertices are put in a random order and
+     * every edge goes from an earlier to a later vertex in it.
+     */
+    static DirectedGraph dag(int numVertices, long numEdges, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        DirectedGraph graph = new DirectedGraph(numVertices);
+        int[] perm = permutation(numVertices, random);
+        for(long i = 0; i < numEdges; i++) {
+            int first = random.nextInt(numVertices);
+            int second = random.nextInt(numVertices);
+            if(first == second)
+                continue;
+            graph.addEdge(perm[Math.min(first, second)],
+                    perm[Math.max(first, second)], 1);
+        }
+        return graph;
+    }
+
+    private static void addUndirected(DirectedGraph graph, int from, int to,
+                                      SplittableRandom random) {
+        int wt = 1 + random.nextInt(MAX_WEIGHT);
+        graph.addEdge(from, to, wt);
+        graph.addEdge(to, from, wt);
+    }
+
+    static int[] permutation(int size, SplittableRandom random) {
+        int[] perm = new int[size];
+        for(int i = 0; i < size; i++)
+            perm[i] = i;
+        for(int i = size - 1; i > 0; i--) { // Fisher-Yates shuffle
+            int j = random.nextInt(i + 1);
+            int temp = perm[i];
+            perm[i] = perm[j];
+            perm[j] = temp;
+        }
+        return perm;
+    }
+}
@@ -0,0 +1,52 @@
+package algorithms;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Inserting and then removing every key of a stream with Heap, and building
+ * a heap from an array in one go.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeapBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({KeyStreams.SORTED, KeyStreams.RANDOM, KeyStreams.REVERSED})
+    public String order;
+
+    @Param({"100000"})
+    public int size;
+
+    private int[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.keys = KeyStreams.keys(this.order, this.size, SEED);
+    }
+
+    @Benchmark
+    public long insertThenDelete() {
+        Heap heap = new Heap();
+        for(int key : this.keys)
+            heap.insert(key);
+        long sum = 0;
+        for(int i = 0; i < this.size; i++)
+            sum += heap.delete();
+        return sum;
+    }
+
+    @Benchmark
+    public long constructThenDelete() {
+        Heap heap = Heap.heapConstruction(this.keys.clone());
+        long sum = 0;
+        for(int i = 0; i < this.size; i++)
+            sum += heap.delete();
+        return sum;
+    }
+}
@@ -0,0 +1,49 @@
+package algorithms;
+
+import java.util.*;
+
+/**
+ * Reproducible streams of distinct int keys for the tree and heap
+ * benchmarks. Every stream is a permutation of 0 to size - 1.
+ */
+final class KeyStreams {
+
+    /**
+     * Orders accepted by keys, for use as a JMH @Param.
+     * SORTED: ascending, rotates an AVL tree on almost every insert.
+     * RANDOM: uniformly shuffled.
+     * REVERSED: descending, every key inserted into a min heap bubbles up
+     * to the root.
+     * ZIGZAG: smallest, largest, second smallest, second largest and so on,
+     * which makes an AVL tree do double rotations.
+     */
+    static final String SORTED = "SORTED";
+    static final String RANDOM = "RANDOM";
+    static final String REVERSED = "REVERSED";
+    static final String ZIGZAG = "ZIGZAG";
+
+    private KeyStreams() {}
+
+    static int[] keys(String order, int size, long seed) {
+        int[] keys = new int[size];
+        switch(order) {
+            case SORTED:
+                for(int i = 0; i < size; i++)
+                    keys[i] = i;
+                return keys;
+            case RANDOM:
+                return GraphGenerators.permutation(size,
+                        new SplittableRandom(seed));
+            case REVERSED:
+                for(int i = 0; i < size; i++)
+                    keys[i] = size - 1 - i;
+                return keys;
+            case ZIGZAG:
+                for(int i = 0, lo = 0, hi = size - 1; i < size; i++)
+                    keys[i] = (i % 2 == 0) ? lo++ : hi--;
+                return keys;
+            default:
+                throw new IllegalArgumentException("Unknown order: " + order);
+        }
+    }
+}
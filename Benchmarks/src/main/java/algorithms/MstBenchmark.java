@@ -0,0 +1,62 @@
+package algorithms;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Minimum spanning trees with PrimMST and KruskalMST, on the DirectedGraph
+ * and on its CSRGraph form.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MstBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({GraphGenerators.RANDOM, GraphGenerators.GRID,
+            GraphGenerators.RMAT})
+    public String shape;
+
+    @Param({"100000"})
+    public int vertices;
+
+    private DirectedGraph graph;
+    private CSRGraph compact;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.graph = GraphGenerators.undirected(this.shape, this.vertices,
+                SEED);
+        this.compact = this.graph.freeze();
+    }
+
+    @Benchmark
+    public DirectedGraph primDirectedGraph() {
+        return new PrimMST(this.graph, this.compact.numVertices()).findMST(0);
+    }
+
+    @Benchmark
+    public SpanningTree primCompact() {
+        return new PrimMST(this.compact).findSpanningTree(0);
+    }
+
+    @Benchmark
+    public DirectedGraph kruskalDirectedGraph() {
+        return new KruskalMST(this.compact.numVertices(), this.graph)
+                .findMST();
+    }
+
+    @Benchmark
+    public SpanningTree filterKruskal() {
+        return new KruskalMST(this.compact).findSpanningTree();
+    }
+
+    @Benchmark
+    public SpanningTree boruvka() {
+        return new BoruvkaMST(this.compact).findSpanningTree();
+    }
+}
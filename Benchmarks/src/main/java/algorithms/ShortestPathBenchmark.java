@@ -0,0 +1,72 @@
+package algorithms;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Single-source shortest paths with DijkstraAlgo, on the DirectedGraph and
+ * on its CSRGraph form. Sources rotate through a fixed set so no single
+ * source is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShortestPathBenchmark {
+
+    private static final long SEED = 42;
+    private static final int NUM_SOURCES = 16;
+
+    @Param({GraphGenerators.RANDOM, GraphGenerators.GRID,
+            GraphGenerators.RMAT})
+    public String shape;
+
+    @Param({"100000"})
+    public int vertices;
+
+    @Param({"2", "4"})
+    public int arity;
+
+    private DirectedGraph directed;
+    private CSRGraph graph;
+    private DijkstraAlgo dijkstra;
+    private int[] sources;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.directed = GraphGenerators.undirected(this.shape, this.vertices,
+                SEED);
+        this.graph = this.directed.freeze();
+        this.dijkstra = new DijkstraAlgo(this.graph, this.arity);
+        this.sources = KeyStreams.keys(KeyStreams.RANDOM,
+                this.graph.numVertices(), SEED);
+        this.next = 0;
+    }
+
+    @Benchmark
+    public int[] dijkstra() {
+        return this.dijkstra.computeDistances(nextSource());
+    }
+
+    @Benchmark
+    public ShortestPaths shortestPathTree() {
+        return this.dijkstra.computeShortestPathTree(nextSource());
+    }
+
+    @Benchmark
+    public ArrayList<Vertex> dijkstraDirectedGraph() {
+        // the DirectedGraph engine can only be run once
+        return new DijkstraAlgo(this.directed, this.graph.numVertices())
+                .computeShortestPaths(nextSource());
+    }
+
+    private int nextSource() {
+        int source = this.sources[this.next];
+        this.next = (this.next + 1) % NUM_SOURCES;
+        return source;
+    }
+}
@@ -0,0 +1,105 @@
+package algorithms;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Lookups on a StaticIndex frozen from an AVLTree, against the AVLTree
+ * itself, IntAVLTree and binary search over the sorted keys. The largest
+ * size is well past the size of the caches, where the pointer-based tree
+ * misses on almost every level.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StaticIndexBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private int[] sorted; // even numbers, so half the probes are absent
+    private int[] probes;
+    private AVLTree tree;
+    private Node root;
+    private IntAVLTree intTree;
+    private StaticIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] keys = KeyStreams.keys(KeyStreams.RANDOM, this.size, SEED);
+        this.tree = new AVLTree();
+        this.root = null;
+        this.intTree = new IntAVLTree(this.size);
+        for(int key : keys) {
+            this.root = this.tree.insert(2 * key, this.root);
+            this.intTree.insert(2 * key);
+        }
+        this.sorted = this.intTree.toArray();
+        this.index = new StaticIndex(this.root);
+        this.probes = KeyStreams.keys(KeyStreams.RANDOM, 2 * this.size,
+                SEED + 1);
+    }
+
+    @Benchmark
+    public StaticIndex freeze() {
+        return new StaticIndex(this.root);
+    }
+
+    @Benchmark
+    public int treeSearch() {
+        int found = 0;
+        for(int key : this.probes)
+            if(this.tree.search(key, this.root))
+                found++;
+        return found;
+    }
+
+    @Benchmark
+    public int intTreeSearch() {
+        int found = 0;
+        for(int key : this.probes)
+            if(this.intTree.search(key))
+                found++;
+        return found;
+    }
+
+    @Benchmark
+    public int binarySearch() {
+        int found = 0;
+        for(int key : this.probes)
+            if(Arrays.binarySearch(this.sorted, key) >= 0)
+                found++;
+        return found;
+    }
+
+    @Benchmark
+    public int indexSearch() {
+        int found = 0;
+        for(int key : this.probes)
+            if(this.index.search(key))
+                found++;
+        return found;
+    }
+
+    @Benchmark
+    public long indexFloor() {
+        long total = 0;
+        for(int key : this.probes)
+            total += this.index.floor(key);
+        return total;
+    }
+
+    @Benchmark
+    public long indexRank() {
+        long total = 0;
+        for(int key : this.probes)
+            total += this.index.rank(key);
+        return total;
+    }
+}
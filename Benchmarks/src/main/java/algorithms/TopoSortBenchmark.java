@@ -0,0 +1,57 @@
+package algorithms;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Topological sort of a random DAG, with the DirectedGraph version (which
+ * needs setEdge for every edge), Kahn's algorithm on a CSRGraph, and the
+ * parallel level-synchronous schedule.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TopoSortBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"100000"})
+    public int vertices;
+
+    @Param({"4"})
+    public int edgesPerVertex;
+
+    private DirectedGraph graph;
+    private CSRGraph compact;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.graph = GraphGenerators.dag(this.vertices,
+                (long) this.vertices * this.edgesPerVertex, SEED);
+        this.compact = this.graph.freeze();
+    }
+
+    @Benchmark
+    public Queue<Integer> topoSortDirectedGraph() {
+        TopoSort sort = new TopoSort(this.vertices, this.graph);
+        for(int v = 0; v < this.vertices; v++)
+            for(long e = this.compact.firstEdge(v), end = this.compact
+                    .lastEdge(v); e < end; e++)
+                sort.setEdge(v, this.compact.target(e));
+        return sort.topoSort();
+    }
+
+    @Benchmark
+    public Queue<Integer> topoSortCompact() {
+        return new TopoSort(this.compact).topoSort();
+    }
+
+    @Benchmark
+    public TopoSchedule schedule() {
+        return new TopoSort(this.compact).schedule();
+    }
+}
@@ -0,0 +1,67 @@
+package algorithms;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A stream of random unions followed by random connectivity queries, on
+ * UnionFind and on ConcurrentUnionFind used from one thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnionFindBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"1000000"})
+    public int elements;
+
+    private int[] first;
+    private int[] second;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        this.first = new int[this.elements];
+        this.second = new int[this.elements];
+        for(int i = 0; i < this.elements; i++) {
+            this.first[i] = random.nextInt(this.elements);
+            this.second[i] = random.nextInt(this.elements);
+        }
+    }
+
+    @Benchmark
+    public int unionFind() {
+        UnionFind components = new UnionFind(this.elements);
+        int result = 0;
+        for(int i = 0; i < this.elements; i++)
+            if(components.union(this.first[i], this.second[i]))
+                result++;
+        for(int i = 0; i < this.elements; i++)
+            if(components.findRoot(this.first[i])
+                    == components.findRoot(this.second[(i + 1)
+                    % this.elements]))
+                result++;
+        return result;
+    }
+
+    @Benchmark
+    public int concurrentUnionFind() {
+        ConcurrentUnionFind components = new ConcurrentUnionFind(
+                this.elements);
+        int result = 0;
+        for(int i = 0; i < this.elements; i++)
+            if(components.union(this.first[i], this.second[i]))
+                result++;
+        for(int i = 0; i < this.elements; i++)
+            if(components.find(this.first[i],
+                    this.second[(i + 1) % this.elements]))
+                result++;
+        return result;
+    }
+}
@@ -0,0 +1,209 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Boruvka's algorithm for MST, run in parallel on a CompactGraph.
+ * PRE-CONDITIONS: Undirected graph, stored with an edge in each direction
+ *
+ * Every vertex starts as its own component. In each round, the lightest
+ * edge leaving every component is found in parallel, all those edges are
+ * added to the tree, and the components they join are merged. The edge list
+ * is then contracted: endpoints are relabelled with their new component and
+ * edges inside a component are dropped, so each round works on fewer edges.
+ * The number of components at least halves every round, giving at most lgV
+ * rounds of O(E) parallel work.
+ *
+ * Edges of equal weight are ordered like Edge.compareTo with the smaller
+ * endpoint as from vertex, then by edge index. This is a strict order, so
+ * the lightest edges of all components never form a cycle and the result
+ * is the same on every run, whatever the number of threads.
+ */
+public class BoruvkaMST {
+
+    private static final int CHUNK = 1 << 14; // edges compacted per task
+
+    private final CompactGraph graph;
+    private final ForkJoinPool pool;
+
+    // State of a findSpanningTree run, for the edges still between
+    // components
+    private int[] source; // from vertex of each original edge
+    private int[] edgeU; // component of the from vertex
+    private int[] edgeV; // component of the to vertex
+    private int[] edgeId; // index of the original edge
+    private int numEdges;
+
+    BoruvkaMST(CompactGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    BoruvkaMST(CompactGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    /**
+     * @return the edges of the minimum spanning tree, or forest if the graph
+     * is not connected, and their total weight.
+     */
+    public SpanningTree findSpanningTree() {
+        int size = this.graph.numVertices();
+        long totalEdges = this.graph.numEdges();
+        if(totalEdges > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many edges: "
+                    + totalEdges);
+        this.source = new int[(int) totalEdges];
+        this.edgeU = new int[(int) totalEdges];
+        this.edgeV = new int[(int) totalEdges];
+        this.edgeId = new int[(int) totalEdges];
+        this.pool.submit(() -> IntStream.range(0, size).parallel()
+                .forEach(v -> {
+                    for(long e = graph.firstEdge(v), end = graph.lastEdge(v);
+                        e < end; e++) {
+                        this.source[(int) e] = v;
+                        this.edgeU[(int) e] = v;
+                        this.edgeV[(int) e] = graph.target(e);
+                        this.edgeId[(int) e] = (int) e;
+                    }
+                })).join();
+        this.numEdges = (int) totalEdges;
+        this.numEdges = compact(); // drop self loops
+
+        UnionFind components = new UnionFind(size);
+        AtomicIntegerArray lightest = new AtomicIntegerArray(size); // position
+        // of the lightest edge leaving each component, -1 if none yet
+        int[] active = new int[size]; // current components
+        int numActive = size;
+        for(int v = 0; v < size; v++) {
+            active[v] = v;
+            lightest.set(v, -1);
+        }
+        int[] label = new int[size]; // new component of each old one
+        int maxSize = Math.max(size - 1, 0);
+        int[] treeFrom = new int[maxSize];
+        int[] treeTo = new int[maxSize];
+        int[] treeWeight = new int[maxSize];
+        int treeSize = 0;
+
+        while(this.numEdges > 0) {
+            int edges = this.numEdges;
+            this.pool.submit(() -> IntStream.range(0, edges).parallel()
+                    .forEach(i -> {
+                        offerLightest(lightest, this.edgeU[i], i);
+                        offerLightest(lightest, this.edgeV[i], i);
+                    })).join();
+
+            for(int i = 0; i < numActive; i++) {
+                int c = active[i];
+                int best = lightest.get(c);
+                if(best < 0)
+                    continue;
+                lightest.set(c, -1);
+                if(!components.union(this.edgeU[best], this.edgeV[best]))
+                    continue; // chosen by the other component as well
+                int e = this.edgeId[best];
+                treeFrom[treeSize] = this.source[e];
+                treeTo[treeSize] = this.graph.target(e);
+                treeWeight[treeSize] = this.graph.weight(e);
+                treeSize++;
+            }
+
+            int kept = 0;
+            for(int i = 0; i < numActive; i++) {
+                int c = active[i];
+                label[c] = components.findRoot(c);
+                if(label[c] == c)
+                    active[kept++] = c;
+            }
+            numActive = kept;
+            this.pool.submit(() -> IntStream.range(0, edges).parallel()
+                    .forEach(i -> {
+                        this.edgeU[i] = label[this.edgeU[i]];
+                        this.edgeV[i] = label[this.edgeV[i]];
+                    })).join();
+            this.numEdges = compact();
+        }
+
+        this.source = null;
+        this.edgeU = null;
+        this.edgeV = null;
+        this.edgeId = null;
+        return new SpanningTree(size, treeFrom, treeTo, treeWeight, treeSize);
+    }
+
+    // Lowers the lightest edge of component to edge i if i is lighter
+    private void offerLightest(AtomicIntegerArray lightest, int component,
+                               int i) {
+        int current = lightest.get(component);
+        while(current < 0 || lighter(i, current)) {
+            if(lightest.compareAndSet(component, current, i))
+                return;
+            current = lightest.get(component);
+        }
+    }
+
+    /**
+     * Compares working edges i and j by weight, then smaller endpoint, then
+     * larger endpoint, then edge index.
+     * @return true if edge i comes first.
+     */
+    private boolean lighter(int i, int j) {
+        int first = this.edgeId[i];
+        int second = this.edgeId[j];
+        int firstWt = this.graph.weight(first);
+        int secondWt = this.graph.weight(second);
+        if(firstWt != secondWt)
+            return firstWt < secondWt;
+        int firstFrom = this.source[first];
+        int firstTo = this.graph.target(first);
+        int secondFrom = this.source[second];
+        int secondTo = this.graph.target(second);
+        int firstLow = Math.min(firstFrom, firstTo);
+        int secondLow = Math.min(secondFrom, secondTo);
+        if(firstLow != secondLow)
+            return firstLow < secondLow;
+        int firstHigh = Math.max(firstFrom, firstTo);
+        int secondHigh = Math.max(secondFrom, secondTo);
+        if(firstHigh != secondHigh)
+            return firstHigh < secondHigh;
+        return first < second;
+    }
+
+    /**
+     * Drops edges whose endpoints are in the same component, keeping the
+     * order of the rest. Chunks are compacted in parallel and then moved
+     * together.
+     * @return the number of edges left.
+     */
+    private int compact() {
+        int edges = this.numEdges;
+        int chunks = (edges + CHUNK - 1) / CHUNK;
+        int[] kept = new int[chunks];
+        this.pool.submit(() -> IntStream.range(0, chunks).parallel()
+                .forEach(c -> {
+                    int start = c * CHUNK;
+                    int end = Math.min(edges, start + CHUNK);
+                    int next = start;
+                    for(int i = start; i < end; i++)
+                        if(this.edgeU[i] != this.edgeV[i]) {
+                            this.edgeU[next] = this.edgeU[i];
+                            this.edgeV[next] = this.edgeV[i];
+                            this.edgeId[next] = this.edgeId[i];
+                            next++;
+                        }
+                    kept[c] = next - start;
+                })).join();
+
+        int end = 0;
+        for(int c = 0; c < chunks; c++) {
+            int start = c * CHUNK;
+            System.arraycopy(this.edgeU, start, this.edgeU, end, kept[c]);
+            System.arraycopy(this.edgeV, start, this.edgeV, end, kept[c]);
+            System.arraycopy(this.edgeId, start, this.edgeId, end, kept[c]);
+            end += kept[c];
+        }
+        return end;
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.*;
+
+/**
+ * Frozen, primitive-array form of a DirectedGraph.
+ * The edges of vertex v are stored at indices offsets[v] to offsets[v + 1]
+ * of targets and weights, sorted by target vertex. Each edge costs 8 bytes
+ * instead of a LinkedList node plus an Edge object.
+ * Build one with DirectedGraph.freeze() once all edges have been added.
+ */
+public class CSRGraph implements CompactGraph {
+
+    public final int[] offsets; // offsets[v] is the index of the first edge
+    // of v, offsets[numVertices] is the number of edges
+    public final int[] targets; // vertex each edge goes to
+    public final int[] weights; // weight of each edge
+
+    CSRGraph(int[] offsets, int[] targets, int[] weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Builds the CSR form of a graph. Edges of each vertex are sorted by
+     * target, then by weight.
+     * @param graph Graph to be frozen.
+     * @return the CSR graph with the same vertices and edges.
+     */
+    public static CSRGraph fromDirectedGraph(DirectedGraph graph) {
+        int numVertices = graph._adjList.size();
+        int[] offsets = new int[numVertices + 1];
+        int maxDegree = 0;
+        for(int v = 0; v < numVertices; v++) {
+            int degree = graph._adjList.get(v).size();
+            offsets[v + 1] = offsets[v] + degree;
+            maxDegree = Math.max(maxDegree, degree);
+        }
+
+        int[] targets = new int[offsets[numVertices]];
+        int[] weights = new int[offsets[numVertices]];
+        long[] row = new long[maxDegree]; // scratch used to sort one vertex
+        // at a time, target in the high half and weight in the low half
+        for(int v = 0; v < numVertices; v++) {
+            int degree = 0;
+            for(Edge e : graph._adjList.get(v))
+                row[degree++] = ((long) e.getTo() << 32)
+                        | ((e.getWeight() ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+            Arrays.sort(row, 0, degree);
+            for(int i = 0; i < degree; i++) {
+                targets[offsets[v] + i] = (int) (row[i] >>> 32);
+                weights[offsets[v] + i] = (int) row[i] ^ Integer.MIN_VALUE;
+            }
+        }
+        return new CSRGraph(offsets, targets, weights);
+    }
+
+    /**
+     * Builds the transpose of a graph, where every edge u->v becomes v->u
+     * with the same weight. Used by searches that run backwards from a
+     * target vertex.
+     * @param graph Graph to be reversed.
+     * @return the reversed graph in CSR form.
+     */
+    public static CSRGraph reverse(CompactGraph graph) {
+        int numVertices = graph.numVertices();
+        long numEdges = graph.numEdges();
+        if(numEdges > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many edges for a "
+                    + "CSRGraph: " + numEdges);
+        int[] offsets = new int[numVertices + 1];
+        for(long e = 0; e < numEdges; e++)
+            offsets[graph.target(e) + 1]++;
+        for(int v = 0; v < numVertices; v++)
+            offsets[v + 1] += offsets[v];
+
+        int[] next = Arrays.copyOf(offsets, numVertices); // next free slot of
+        // each vertex, filled in order of from vertex so rows stay sorted
+        int[] targets = new int[(int) numEdges];
+        int[] weights = new int[(int) numEdges];
+        for(int from = 0; from < numVertices; from++)
+            for(long e = graph.firstEdge(from), end = graph.lastEdge(from);
+                e < end; e++) {
+                int slot = next[graph.target(e)]++;
+                targets[slot] = from;
+                weights[slot] = graph.weight(e);
+            }
+        return new CSRGraph(offsets, targets, weights);
+    }
+
+    public int numVertices() { return this.offsets.length - 1; }
+    public long numEdges() { return this.targets.length; }
+    public long firstEdge(int vertex) { return this.offsets[vertex]; }
+    public long lastEdge(int vertex) { return this.offsets[vertex + 1]; }
+    public int target(long edge) { return this.targets[(int) edge]; }
+    public int weight(long edge) { return this.weights[(int) edge]; }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[ " + numVertices() + " vertices :\n");
+        for (int row = 0; row < numVertices(); row++) {
+            sb.append("\t" + row + " :");
+            for (int e = this.offsets[row]; e < this.offsets[row + 1]; e++)
+                sb.append(" (" + row + "->" + this.targets[e] + ": "
+                        + this.weights[e] + ")");
+            sb.append("\n");
+        }
+        return sb + "]";
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Byte buffer addressed by long indices, made of ByteBuffers of 1GB each,
+ * since a single ByteBuffer cannot hold more than 2^31 bytes. Values are
+ * little endian.
+ * PRE-CONDITIONS: every int is read and written at an index that is a
+ * multiple of 4, and every long at a multiple of 8, so no value is split
+ * between 2 chunks.
+ */
+class ChunkedBuffer {
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final ByteBuffer[] chunks;
+    private final long size;
+
+    private ChunkedBuffer(ByteBuffer[] chunks, long size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Maps size bytes of a file, starting at position, into memory. The
+     * file grows to fit if mode is READ_WRITE.
+     */
+    static ChunkedBuffer map(FileChannel channel, FileChannel.MapMode mode,
+                             long position, long size) throws IOException {
+        ByteBuffer[] chunks = new ByteBuffer[numChunks(size)];
+        for(int i = 0; i < chunks.length; i++) {
+            long start = i * CHUNK_SIZE;
+            chunks[i] = channel.map(mode, position + start,
+                    Math.min(CHUNK_SIZE, size - start))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new ChunkedBuffer(chunks, size);
+    }
+
+    /**
+     * Allocates size bytes outside the Java heap, set to 0.
+     */
+    static ChunkedBuffer allocateDirect(long size) {
+        ByteBuffer[] chunks = new ByteBuffer[numChunks(size)];
+        for(int i = 0; i < chunks.length; i++)
+            chunks[i] = ByteBuffer.allocateDirect((int) Math.min(CHUNK_SIZE,
+                    size - i * CHUNK_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+        return new ChunkedBuffer(chunks, size);
+    }
+
+    long size() { return this.size; }
+
+    int getInt(long index) {
+        return this.chunks[(int) (index >>> CHUNK_SHIFT)]
+                .getInt((int) (index & CHUNK_MASK));
+    }
+
+    long getLong(long index) {
+        return this.chunks[(int) (index >>> CHUNK_SHIFT)]
+                .getLong((int) (index & CHUNK_MASK));
+    }
+
+    void putInt(long index, int value) {
+        this.chunks[(int) (index >>> CHUNK_SHIFT)]
+                .putInt((int) (index & CHUNK_MASK), value);
+    }
+
+    void putLong(long index, long value) {
+        this.chunks[(int) (index >>> CHUNK_SHIFT)]
+                .putLong((int) (index & CHUNK_MASK), value);
+    }
+
+    /**
+     * Writes changes to a mapped file back to disk. Does nothing for other
+     * buffers.
+     */
+    void force() {
+        for(ByteBuffer chunk : this.chunks)
+            if(chunk instanceof MappedByteBuffer)
+                ((MappedByteBuffer) chunk).force();
+    }
+
+    /**
+     * Hands the chunks over to the caller, e.g. to free them. The buffer
+     * must not be used afterwards: reads and writes then fail instead of
+     * reaching memory that may have been freed.
+     * @return the chunks, null entries if already released.
+     */
+    ByteBuffer[] release() {
+        ByteBuffer[] result = this.chunks.clone();
+        Arrays.fill(this.chunks, null);
+        return result;
+    }
+
+    private static int numChunks(long size) {
+        long chunks = (size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+        if(chunks > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Buffer too large: " + size);
+        return (int) chunks;
+    }
+}
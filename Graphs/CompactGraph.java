@@ -0,0 +1,44 @@
+/**
+ * Read-only view of a directed graph in compressed sparse row form.
+ * The edges leaving vertex v are numbered from firstEdge(v) (inclusive) to
+ * lastEdge(v) (exclusive), so algorithms can scan the neighbours of a vertex
+ * by edge index without creating any Edge objects.
+ * Edge indices are longs so that backends holding more than 2^31 edges can
+ * implement the same view.
+ */
+public interface CompactGraph {
+
+    /**
+     * @return the number of vertices, numbered 0 to numVertices() - 1.
+     */
+    int numVertices();
+
+    /**
+     * @return the total number of edges in the graph.
+     */
+    long numEdges();
+
+    /**
+     * @param vertex Vertex whose edges are requested.
+     * @return index of the first edge leaving vertex.
+     */
+    long firstEdge(int vertex);
+
+    /**
+     * @param vertex Vertex whose edges are requested.
+     * @return index one past the last edge leaving vertex.
+     */
+    long lastEdge(int vertex);
+
+    /**
+     * @param edge Index of the edge.
+     * @return the vertex the edge goes to.
+     */
+    int target(long edge);
+
+    /**
+     * @param edge Index of the edge.
+     * @return the weight of the edge.
+     */
+    int weight(long edge);
+}
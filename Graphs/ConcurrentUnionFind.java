@@ -0,0 +1,102 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Thread safe version of UnionFind, with the same union, find and findRoot
+ * operations. Any number of threads may call them at the same time without
+ * locking.
+ *
+ * Parents are kept in an AtomicIntegerArray. A root is linked under another
+ * root with a single compare-and-set, which fails if another thread linked
+ * it first, in which case the roots are looked up again. Roots are always
+ * linked from the lower to the higher of a fixed random order of the
+ * elements (a hash of their index), which keeps trees shallow like union by
+ * size and can never create a cycle.
+ * findRoot uses path halving: every element visited is pointed at its
+ * grandparent with a compare-and-set. A failed compare-and-set means another
+ * thread already moved it, so it is not retried, and findRoot never waits
+ * on another thread.
+ */
+public class ConcurrentUnionFind {
+
+    private final AtomicIntegerArray parent; // parent of the ith element
+    private final int numVertex;
+
+    ConcurrentUnionFind(int numVertex) {
+        this.numVertex = numVertex;
+        this.parent = new AtomicIntegerArray(numVertex);
+        for(int i = 0; i < numVertex; i++)
+            this.parent.set(i, i);
+    }
+
+    public int numVertices() { return this.numVertex; }
+
+    /**
+     * Method that connects 2 components if they're not connected.
+     * @return true if the components were merged, false if they were
+     * already connected.
+     */
+    public boolean union(int first, int second) {
+        while(true) {
+            first = findRoot(first);
+            second = findRoot(second);
+            if(first == second)
+                return false;
+            if(order(first) > order(second)) { // link first under second
+                int temp = first;
+                first = second;
+                second = temp;
+            }
+            if(this.parent.compareAndSet(first, first, second))
+                return true;
+            // first stopped being a root, look both roots up again
+        }
+    }
+
+    /**
+     * Method that checks if 2 elements are connected. The answer is correct
+     * at some instant during the call.
+     * @return true if connected, else false
+     */
+    public boolean find(int first, int second) {
+        while(true) {
+            first = findRoot(first);
+            second = findRoot(second);
+            if(first == second)
+                return true;
+            if(this.parent.get(first) == first) // first was still a root
+                // after second's root was found, so they were apart
+                return false;
+        }
+    }
+
+    /**
+     * Method that finds the root of an element, halving the path to it.
+     * @param child
+     * @return the root of the element child
+     */
+    public int findRoot(int child) {
+        while(true) {
+            int parent = this.parent.get(child);
+            if(parent == child)
+                return child;
+            int grandparent = this.parent.get(parent);
+            if(parent != grandparent)
+                this.parent.compareAndSet(child, parent, grandparent);
+            child = grandparent;
+        }
+    }
+
+    /**
+     * Position of an element in the linking order. This is the MurmurHash3
+     * finalizer, a bijection on ints, so no 2 elements tie.
+     */
+    private static int order(int element) {
+        int h = element;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
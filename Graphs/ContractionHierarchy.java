@@ -0,0 +1,568 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.IntStream;
+
+/**
+ * Contraction Hierarchy of a static graph, for fast shortest path queries.
+ * PRE-CONDITIONS: no negative edges
+ *
+ * Preprocessing contracts vertices one at a time in order of importance.
+ * Contracting v removes it from the graph, and for every path u->v->x that
+ * may be the only shortest path from u to x, a shortcut u->x with the
+ * combined weight is added. Whether a shortcut is needed is decided by a
+ * local Dijkstra search from u that avoids v (a witness search).
+ * Importance is the edge difference: shortcuts added minus edges removed,
+ * plus the number of already contracted neighbours to spread contraction
+ * evenly over the graph.
+ *
+ * Contraction runs in rounds. Each round picks every vertex whose
+ * importance is lower than that of all its remaining neighbours, finds the
+ * shortcuts of all of them in parallel, then removes them. The vertices of
+ * a round are never adjacent, and witness searches avoid all of them, so
+ * the result does not depend on the order inside a round.
+ *
+ * The rank of a vertex is the order in which it was contracted. Every
+ * original edge and shortcut goes from a lower to a higher rank vertex or
+ * the other way round, giving an upward graph searched forward from the
+ * source and a downward graph searched backward from the target. See
+ * ContractionHierarchyQuery.
+ */
+public class ContractionHierarchy {
+
+    private static final int CONTRACT_SETTLE_LIMIT = 500; // witness
+    // searches give up after settling this many vertices and add the shortcut
+    private static final int ESTIMATE_SETTLE_LIMIT = 50; // smaller limit
+    // used when estimating importance, which runs far more often
+
+    final int[] rank; // contraction order of each vertex
+    // Upward graph: edges v->x with rank[x] > rank[v], stored at v
+    final int[] upOffsets;
+    final int[] upTargets;
+    final int[] upWeights;
+    final int[] upMiddle; // contracted vertex a shortcut skips, -1 if the
+    // edge is original
+    // Downward graph: edges u->v with rank[u] > rank[v], stored reversed
+    // at v, so downTargets[e] is u
+    final int[] downOffsets;
+    final int[] downTargets;
+    final int[] downWeights;
+    final int[] downMiddle;
+
+    private long shortcuts;
+    private long buildNanos;
+    private long peakBuildBytes;
+
+    private ContractionHierarchy(int[] rank, int[] upOffsets, int[] upTargets,
+                                 int[] upWeights, int[] upMiddle,
+                                 int[] downOffsets, int[] downTargets,
+                                 int[] downWeights, int[] downMiddle) {
+        this.rank = rank;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddle = upMiddle;
+        this.downOffsets = downOffsets;
+        this.downTargets = downTargets;
+        this.downWeights = downWeights;
+        this.downMiddle = downMiddle;
+    }
+
+    public int numVertices() { return this.rank.length; }
+
+    /**
+     * @return the number of shortcut edges in the hierarchy.
+     */
+    public long getShortcutCount() { return this.shortcuts; }
+
+    /**
+     * @return wall clock time taken by preprocessing, in milliseconds.
+     */
+    public long getBuildTimeMillis() { return this.buildNanos / 1000000; }
+
+    /**
+     * @return bytes used by the arrays of the finished hierarchy.
+     */
+    public long getMemoryBytes() {
+        return 4L * (this.rank.length + this.upOffsets.length
+                + this.downOffsets.length + 3L * this.upTargets.length
+                + 3L * this.downTargets.length);
+    }
+
+    /**
+     * @return the largest number of bytes of arrays held at once during
+     * preprocessing: the working graph, the rows of contracted vertices,
+     * the shortcuts found in a round, the witness search buffers and, at the
+     * end, the finished hierarchy. Sampled after every round, so it is the
+     * high-water mark of those arrays, not of the whole heap.
+     */
+    public long getPeakBuildBytes() { return this.peakBuildBytes; }
+
+    /**
+     * Builds the hierarchy of a graph, using the threads of pool for witness
+     * searches and importance updates.
+     * @param graph Graph to be preprocessed. Self loops are dropped and only
+     * the lightest of parallel edges is kept.
+     * @param pool Pool to run parallel steps on.
+     * @return the contraction hierarchy of graph.
+     */
+    public static ContractionHierarchy build(CompactGraph graph,
+                                             ForkJoinPool pool) {
+        return new Builder(graph, pool).build();
+    }
+
+    /**
+     * Mutable adjacency lists used while contracting. Each vertex has its
+     * own growable rows of targets, weights and middle vertices.
+     */
+    private static final class Adjacency {
+        final int[][] targets;
+        final int[][] weights;
+        final int[][] middles;
+        final int[] count;
+        long bytes; // of count and every row, kept up to date as rows grow
+
+        Adjacency(int size) {
+            this.targets = new int[size][];
+            this.weights = new int[size][];
+            this.middles = new int[size][];
+            this.count = new int[size];
+            this.bytes = 4L * size;
+        }
+
+        int find(int vertex, int target) {
+            int[] row = this.targets[vertex];
+            for(int i = 0; i < this.count[vertex]; i++)
+                if(row[i] == target)
+                    return i;
+            return -1;
+        }
+
+        /**
+         * Adds the edge, or lowers the weight of an existing edge to the
+         * same target.
+         * @return true if an edge was added or changed.
+         */
+        boolean addOrLower(int vertex, int target, int weight, int middle) {
+            int idx = find(vertex, target);
+            if(idx >= 0) {
+                if(weight >= this.weights[vertex][idx])
+                    return false;
+                this.weights[vertex][idx] = weight;
+                this.middles[vertex][idx] = middle;
+                return true;
+            }
+            int n = this.count[vertex];
+            if(this.targets[vertex] == null) {
+                this.targets[vertex] = new int[4];
+                this.weights[vertex] = new int[4];
+                this.middles[vertex] = new int[4];
+                this.bytes += 12L * 4;
+            } else if(n == this.targets[vertex].length) {
+                int[] row = this.targets[vertex];
+                this.targets[vertex] = Arrays.copyOf(row, 2 * n);
+                row = this.weights[vertex];
+                this.weights[vertex] = Arrays.copyOf(row, 2 * n);
+                row = this.middles[vertex];
+                this.middles[vertex] = Arrays.copyOf(row, 2 * n);
+                this.bytes += 12L * n;
+            }
+            this.targets[vertex][n] = target;
+            this.weights[vertex][n] = weight;
+            this.middles[vertex][n] = middle;
+            this.count[vertex]++;
+            return true;
+        }
+
+        void remove(int vertex, int target) {
+            int idx = find(vertex, target);
+            if(idx < 0)
+                return;
+            int last = --this.count[vertex];
+            this.targets[vertex][idx] = this.targets[vertex][last];
+            this.weights[vertex][idx] = this.weights[vertex][last];
+            this.middles[vertex][idx] = this.middles[vertex][last];
+        }
+
+        long bytes() {
+            return this.bytes;
+        }
+    }
+
+    /**
+     * Local Dijkstra search used to look for witness paths. Each thread has
+     * its own for the length of a build, with epoch-stamped arrays so
+     * searches never clear them.
+     */
+    private static final class WitnessSearch {
+        final int[] dist;
+        final int[] seen;
+        final int[] goal; // epoch in which the vertex is a search target
+        final IndexedHeap heap;
+        int epoch;
+
+        WitnessSearch(int size) {
+            this.dist = new int[size];
+            this.seen = new int[size];
+            this.goal = new int[size];
+            this.heap = new IndexedHeap(size);
+        }
+
+        /**
+         * Searches from source over vertices that are not removed or skip,
+         * until all goals are settled, or the limit distance or the settle
+         * limit is reached.
+         * Afterwards distanceTo gives an upper bound on the distance to any
+         * vertex, exact for the settled ones.
+         */
+        void run(Adjacency out, boolean[] removed, int skip, int source,
+                 int[] goals, int goalCount, int limit, int settleLimit) {
+            if(++this.epoch == Integer.MAX_VALUE) {
+                Arrays.fill(this.seen, 0);
+                Arrays.fill(this.goal, 0);
+                this.epoch = 1;
+            }
+            for(int i = 0; i < goalCount; i++)
+                this.goal[goals[i]] = this.epoch;
+            this.heap.clear();
+            this.seen[source] = this.epoch;
+            this.dist[source] = 0;
+            this.heap.insert(source, 0);
+            int settled = 0;
+            int goalsLeft = goalCount;
+            while(!this.heap.isEmpty() && settled++ < settleLimit) {
+                int curr = this.heap.poll();
+                int currDist = this.dist[curr];
+                if(currDist > limit)
+                    break;
+                if(this.goal[curr] == this.epoch && --goalsLeft == 0)
+                    break;
+                int[] targets = out.targets[curr];
+                int[] weights = out.weights[curr];
+                for(int i = 0; i < out.count[curr]; i++) {
+                    int to = targets[i];
+                    if(removed[to] || to == skip)
+                        continue;
+                    int newDist = currDist + weights[i];
+                    if(this.seen[to] != this.epoch || newDist < this.dist[to]) {
+                        this.seen[to] = this.epoch;
+                        this.dist[to] = newDist;
+                        this.heap.insertOrDecrease(to, newDist);
+                    }
+                }
+            }
+        }
+
+        int distanceTo(int vertex) {
+            return this.seen[vertex] == this.epoch ? this.dist[vertex]
+                    : Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Holds the working graph while contracting.
+     */
+    private static final class Builder {
+        final ForkJoinPool pool;
+        final int size;
+        final Adjacency out;
+        final Adjacency in;
+        final boolean[] removed; // contracted, or being contracted this round
+        final int[] priority;
+        final int[] contractedNeighbours;
+        final int[] rank;
+        final int[] touchedIn; // last round that changed each vertex
+        volatile WitnessSearch[] searches; // slot 0 for the thread that
+        // called build, then one per worker of pool by pool index
+        long frozenBytes; // of the rows of contracted vertices
+        long peakBytes;
+
+        Builder(CompactGraph graph, ForkJoinPool pool) {
+            this.pool = pool;
+            this.size = graph.numVertices();
+            this.out = new Adjacency(size);
+            this.in = new Adjacency(size);
+            this.removed = new boolean[size];
+            this.priority = new int[size];
+            this.contractedNeighbours = new int[size];
+            this.rank = new int[size];
+            this.touchedIn = new int[size];
+            this.searches = new WitnessSearch[pool.getParallelism() + 1];
+            for(int v = 0; v < size; v++)
+                for(long e = graph.firstEdge(v), end = graph.lastEdge(v);
+                    e < end; e++) {
+                    int to = graph.target(e);
+                    if(to == v)
+                        continue;
+                    if(graph.weight(e) < 0)
+                        throw new IllegalArgumentException("Negative edge "
+                                + "weight: " + graph.weight(e));
+                    this.out.addOrLower(v, to, graph.weight(e), -1);
+                    this.in.addOrLower(to, v, graph.weight(e), -1);
+                }
+        }
+
+        ContractionHierarchy build() {
+            long start = System.nanoTime();
+            int[] remaining = new int[size];
+            for(int v = 0; v < size; v++)
+                remaining[v] = v;
+            updatePriorities(remaining, size);
+
+            int[][] upTargets = new int[size][]; // frozen rows of each
+            // vertex, captured when it is contracted
+            int[][] upWeights = new int[size][];
+            int[][] upMiddle = new int[size][];
+            int[][] downTargets = new int[size][];
+            int[][] downWeights = new int[size][];
+            int[][] downMiddle = new int[size][];
+
+            int numRemaining = size;
+            int nextRank = 0;
+            int rounds = 0;
+            while(numRemaining > 0) {
+                rounds++;
+                int[] round = independentSet(remaining, numRemaining);
+                for(int v : round)
+                    this.removed[v] = true;
+
+                IntList[] found = new IntList[round.length];
+                this.pool.submit(() -> IntStream.range(0, round.length)
+                        .parallel().forEach(i -> {
+                            found[i] = new IntList();
+                            contract(round[i], found[i]);
+                        })).join();
+                long foundBytes = 0;
+                for(IntList list : found)
+                    foundBytes += 4L * list.data.length;
+
+                IntList touched = new IntList(); // neighbours whose
+                // importance changed
+                for(int i = 0; i < round.length; i++) {
+                    int v = round[i];
+                    this.rank[v] = nextRank++;
+                    int outCount = this.out.count[v];
+                    int inCount = this.in.count[v];
+                    upTargets[v] = frozen(this.out.targets[v], outCount);
+                    upWeights[v] = frozen(this.out.weights[v], outCount);
+                    upMiddle[v] = frozen(this.out.middles[v], outCount);
+                    downTargets[v] = frozen(this.in.targets[v], inCount);
+                    downWeights[v] = frozen(this.in.weights[v], inCount);
+                    downMiddle[v] = frozen(this.in.middles[v], inCount);
+                    this.frozenBytes += 12L * (outCount + inCount);
+                    for(int j = 0; j < outCount; j++) {
+                        int x = upTargets[v][j];
+                        this.in.remove(x, v);
+                        this.contractedNeighbours[x]++;
+                        touched.add(x);
+                    }
+                    for(int j = 0; j < inCount; j++) {
+                        int u = downTargets[v][j];
+                        this.out.remove(u, v);
+                        this.contractedNeighbours[u]++;
+                        touched.add(u);
+                    }
+                    IntList shortcuts = found[i];
+                    for(int j = 0; j < shortcuts.size; j += 3) {
+                        int u = shortcuts.data[j];
+                        int x = shortcuts.data[j + 1];
+                        int wt = shortcuts.data[j + 2];
+                        if(this.out.addOrLower(u, x, wt, v))
+                            this.in.addOrLower(x, u, wt, v);
+                    }
+                }
+
+                recordBytes(foundBytes);
+
+                int kept = 0; // drop the contracted vertices
+                for(int i = 0; i < numRemaining; i++)
+                    if(!this.removed[remaining[i]])
+                        remaining[kept++] = remaining[i];
+                numRemaining = kept;
+                int[] update = touchedRemaining(touched, rounds);
+                updatePriorities(update, update.length);
+            }
+
+            ContractionHierarchy result = new ContractionHierarchy(this.rank,
+                    rowOffsets(upTargets), flatten(upTargets),
+                    flatten(upWeights), flatten(upMiddle),
+                    rowOffsets(downTargets), flatten(downTargets),
+                    flatten(downWeights), flatten(downMiddle));
+            for(int[] row : upMiddle)
+                for(int middle : row)
+                    if(middle >= 0)
+                        result.shortcuts++;
+            for(int[] row : downMiddle)
+                for(int middle : row)
+                    if(middle >= 0)
+                        result.shortcuts++;
+            recordBytes(result.getMemoryBytes());
+            result.peakBuildBytes = this.peakBytes;
+            result.buildNanos = System.nanoTime() - start;
+            return result;
+        }
+
+        /**
+         * Finds the shortcuts needed to contract v, with every removed vertex
+         * excluded from witness searches.
+         * @param v Vertex to be contracted.
+         * @param found Receives (from, to, weight) triples, or null to only
+         * count them.
+         * @return the number of shortcuts needed.
+         */
+        int contract(int v, IntList found) {
+            int outCount = this.out.count[v];
+            int inCount = this.in.count[v];
+            if(outCount == 0 || inCount == 0)
+                return 0;
+            int[] outTargets = this.out.targets[v];
+            int[] outWeights = this.out.weights[v];
+            int maxOut = 0;
+            for(int j = 0; j < outCount; j++)
+                maxOut = Math.max(maxOut, outWeights[j]);
+
+            WitnessSearch search = search();
+            int needed = 0;
+            for(int i = 0; i < inCount; i++) {
+                int u = this.in.targets[v][i];
+                int inWeight = this.in.weights[v][i];
+                search.run(this.out, this.removed, v, u, outTargets, outCount,
+                        inWeight + maxOut, found == null ? ESTIMATE_SETTLE_LIMIT
+                                : CONTRACT_SETTLE_LIMIT);
+                for(int j = 0; j < outCount; j++) {
+                    int x = outTargets[j];
+                    if(x == u)
+                        continue;
+                    int viaV = inWeight + outWeights[j];
+                    if(search.distanceTo(x) <= viaV)
+                        continue; // witness path found
+                    needed++;
+                    if(found != null) {
+                        found.add(u);
+                        found.add(x);
+                        found.add(viaV);
+                    }
+                }
+            }
+            return needed;
+        }
+
+        // Raises peakBytes to the bytes held now, plus extra
+        void recordBytes(long extra) {
+            long bytes = this.out.bytes() + this.in.bytes() + 17L * size
+                    + this.frozenBytes + extra; // 17: removed, priority,
+            // neighbours, rank and touchedIn
+            for(WitnessSearch search : this.searches)
+                if(search != null)
+                    bytes += 24L * size; // dist, seen, goal and the heap
+            this.peakBytes = Math.max(this.peakBytes, bytes);
+        }
+
+        /**
+         * @return the witness search of the current thread, made on its
+         * first call.
+         */
+        WitnessSearch search() {
+            Thread thread = Thread.currentThread();
+            int slot = 0; // the calling thread can run tasks while it joins
+            if(thread instanceof ForkJoinWorkerThread
+                    && ((ForkJoinWorkerThread) thread).getPool() == this.pool)
+                slot = 1 + ((ForkJoinWorkerThread) thread).getPoolIndex();
+            WitnessSearch[] searches = this.searches;
+            if(slot < searches.length && searches[slot] != null)
+                return searches[slot];
+            return newSearch(slot);
+        }
+
+        // Pool indices can exceed the parallelism when the pool adds
+        // threads, so the array grows to fit
+        synchronized WitnessSearch newSearch(int slot) {
+            WitnessSearch[] searches = this.searches;
+            if(slot >= searches.length)
+                searches = Arrays.copyOf(searches, slot + 1);
+            if(searches[slot] == null)
+                searches[slot] = new WitnessSearch(this.size);
+            this.searches = searches;
+            return searches[slot];
+        }
+
+        // Recomputes the importance of vertices in parallel
+        void updatePriorities(int[] vertices, int count) {
+            this.pool.submit(() -> IntStream.range(0, count).parallel()
+                    .forEach(i -> {
+                        int v = vertices[i];
+                        this.priority[v] = contract(v, null)
+                                - this.out.count[v] - this.in.count[v]
+                                + this.contractedNeighbours[v];
+                    })).join();
+        }
+
+        /**
+         * Picks every remaining vertex whose (importance, index) is smaller
+         * than that of all its remaining neighbours.
+         */
+        int[] independentSet(int[] remaining, int count) {
+            boolean[] chosen = new boolean[count];
+            this.pool.submit(() -> IntStream.range(0, count).parallel()
+                    .forEach(i -> chosen[i] = isLocalMinimum(remaining[i])))
+                    .join();
+            IntList result = new IntList();
+            for(int i = 0; i < count; i++)
+                if(chosen[i])
+                    result.add(remaining[i]);
+            return result.toArray();
+        }
+
+        boolean isLocalMinimum(int v) {
+            for(int i = 0; i < this.out.count[v]; i++)
+                if(beats(this.out.targets[v][i], v))
+                    return false;
+            for(int i = 0; i < this.in.count[v]; i++)
+                if(beats(this.in.targets[v][i], v))
+                    return false;
+            return true;
+        }
+
+        // Whether w is contracted before v
+        boolean beats(int w, int v) {
+            return this.priority[w] < this.priority[v]
+                    || (this.priority[w] == this.priority[v] && w < v);
+        }
+
+        int[] touchedRemaining(IntList touched, int round) {
+            IntList result = new IntList();
+            for(int i = 0; i < touched.size; i++) {
+                int v = touched.data[i];
+                if(!this.removed[v] && this.touchedIn[v] != round) {
+                    this.touchedIn[v] = round;
+                    result.add(v);
+                }
+            }
+            return result.toArray();
+        }
+    }
+
+    private static int[] frozen(int[] row, int count) {
+        return row == null ? new int[0] : Arrays.copyOf(row, count);
+    }
+
+    private static int[] rowOffsets(int[][] rows) {
+        int[] offsets = new int[rows.length + 1];
+        for(int v = 0; v < rows.length; v++)
+            offsets[v + 1] = offsets[v] + rows[v].length;
+        return offsets;
+    }
+
+    private static int[] flatten(int[][] rows) {
+        int total = 0;
+        for(int[] row : rows)
+            total += row.length;
+        int[] result = new int[total];
+        int idx = 0;
+        for(int[] row : rows) {
+            System.arraycopy(row, 0, result, idx, row.length);
+            idx += row.length;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,189 @@
+import java.util.*;
+
+/**
+ * Shortest path queries on a ContractionHierarchy.
+ * A query runs 2 Dijkstra searches that only move to higher ranked
+ * vertices: forward from the source on the upward graph and backward from
+ * the target on the downward graph. Every shortest path has a version using
+ * shortcuts that goes up and then down the hierarchy, so the answer is the
+ * best vertex reached by both searches. Each search stops once its smallest
+ * key is no better than the best path found, and only visits a small part
+ * of the graph.
+ * Like PointToPointQuery, scratch arrays are allocated once and stamped
+ * with the query number instead of being cleared. Use one per thread.
+ */
+public class ContractionHierarchyQuery {
+
+    private final ContractionHierarchy hierarchy;
+
+    private final int[] distF;
+    private final int[] parentEdgeF; // upward edge the vertex was reached by
+    private final int[] seenF;
+    private final IndexedHeap heapF;
+    private final int[] distB;
+    private final int[] parentEdgeB; // downward edge the vertex was reached by
+    private final int[] seenB;
+    private final IndexedHeap heapB;
+    private int epoch;
+    private int meeting; // highest vertex of the best path, -1 if none
+
+    ContractionHierarchyQuery(ContractionHierarchy hierarchy) {
+        int size = hierarchy.numVertices();
+        this.hierarchy = hierarchy;
+        this.distF = new int[size];
+        this.parentEdgeF = new int[size];
+        this.seenF = new int[size];
+        this.heapF = new IndexedHeap(size);
+        this.distB = new int[size];
+        this.parentEdgeB = new int[size];
+        this.seenB = new int[size];
+        this.heapB = new IndexedHeap(size);
+    }
+
+    /**
+     * Computes the shortest distance from source to target.
+     * @return the distance, Vertex.UNREACHABLE if target is unreachable.
+     */
+    public int distance(int source, int target) {
+        if(++this.epoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.seenF, 0);
+            Arrays.fill(this.seenB, 0);
+            this.epoch = 1;
+        }
+        int epoch = this.epoch;
+        ContractionHierarchy ch = this.hierarchy;
+        this.heapF.clear();
+        this.heapB.clear();
+        this.seenF[source] = epoch;
+        this.distF[source] = 0;
+        this.parentEdgeF[source] = -1;
+        this.heapF.insert(source, 0);
+        this.seenB[target] = epoch;
+        this.distB[target] = 0;
+        this.parentEdgeB[target] = -1;
+        this.heapB.insert(target, 0);
+
+        int best = source == target ? 0 : Vertex.UNREACHABLE;
+        this.meeting = source == target ? source : -1;
+        boolean forward = true;
+        while(true) {
+            boolean forwardDone = this.heapF.isEmpty()
+                    || this.heapF.peekKey() >= best;
+            boolean backwardDone = this.heapB.isEmpty()
+                    || this.heapB.peekKey() >= best;
+            if(forwardDone && backwardDone)
+                break;
+            forward = backwardDone || (!forwardDone && !forward);
+            if(forward)
+                best = expand(ch.upOffsets, ch.upTargets, ch.upWeights,
+                        this.heapF, this.distF, this.parentEdgeF, this.seenF,
+                        this.distB, this.seenB, best);
+            else
+                best = expand(ch.downOffsets, ch.downTargets, ch.downWeights,
+                        this.heapB, this.distB, this.parentEdgeB, this.seenB,
+                        this.distF, this.seenF, best);
+        }
+        return best;
+    }
+
+    /**
+     * Computes a shortest path from source to target in the original graph,
+     * unpacking every shortcut into the edges it replaced.
+     * @return the vertices on the path, starting with source and ending with
+     * target, or an empty array if target is unreachable.
+     */
+    public int[] path(int source, int target) {
+        distance(source, target);
+        if(this.meeting < 0)
+            return new int[0];
+        ContractionHierarchy ch = this.hierarchy;
+
+        IntList upEdges = new IntList(); // upward edges from meeting back
+        // to source
+        for(int v = this.meeting; this.parentEdgeF[v] >= 0; ) {
+            int e = this.parentEdgeF[v];
+            upEdges.add(e);
+            v = sourceOf(ch.upOffsets, e);
+        }
+        IntList path = new IntList();
+        path.add(source);
+        for(int i = upEdges.size - 1; i >= 0; i--) {
+            int e = upEdges.data[i];
+            unpack(sourceOf(ch.upOffsets, e), ch.upTargets[e], ch.upMiddle[e],
+                    path);
+        }
+        for(int v = this.meeting; this.parentEdgeB[v] >= 0; ) {
+            int e = this.parentEdgeB[v]; // stored at the lower vertex next,
+            // going from v down to it
+            int next = sourceOf(ch.downOffsets, e);
+            unpack(v, next, ch.downMiddle[e], path);
+            v = next;
+        }
+        return path.toArray();
+    }
+
+    private int expand(int[] offsets, int[] targets, int[] weights,
+                       IndexedHeap heap, int[] dist, int[] parentEdge,
+                       int[] seen, int[] otherDist, int[] otherSeen,
+                       int best) {
+        int epoch = this.epoch;
+        int curr = heap.poll();
+        int currDist = dist[curr];
+        if(otherSeen[curr] == epoch && currDist + otherDist[curr] < best) {
+            best = currDist + otherDist[curr];
+            this.meeting = curr;
+        }
+        for(int e = offsets[curr]; e < offsets[curr + 1]; e++) {
+            int to = targets[e];
+            int newDist = currDist + weights[e];
+            if(seen[to] == epoch && newDist >= dist[to])
+                continue;
+            seen[to] = epoch;
+            dist[to] = newDist;
+            parentEdge[to] = e;
+            heap.insertOrDecrease(to, newDist);
+        }
+        return best;
+    }
+
+    /**
+     * Appends the original path of the edge from->to, excluding from, to
+     * path. A shortcut from->to over middle is made of the edge from->middle,
+     * stored downward at middle, and the edge middle->to, stored upward at
+     * middle.
+     */
+    private void unpack(int from, int to, int middle, IntList path) {
+        if(middle < 0) {
+            path.add(to);
+            return;
+        }
+        ContractionHierarchy ch = this.hierarchy;
+        int down = findEdge(ch.downOffsets, ch.downTargets, middle, from);
+        unpack(from, middle, ch.downMiddle[down], path);
+        int up = findEdge(ch.upOffsets, ch.upTargets, middle, to);
+        unpack(middle, to, ch.upMiddle[up], path);
+    }
+
+    private static int findEdge(int[] offsets, int[] targets, int vertex,
+                                int target) {
+        for(int e = offsets[vertex]; e < offsets[vertex + 1]; e++)
+            if(targets[e] == target)
+                return e;
+        throw new IllegalStateException("Missing edge " + vertex + " -> "
+                + target);
+    }
+
+    // Vertex whose row contains edge e, by binary search on the offsets
+    private static int sourceOf(int[] offsets, int e) {
+        int lo = 0;
+        int hi = offsets.length - 2;
+        while(lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if(offsets[mid] <= e)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+}
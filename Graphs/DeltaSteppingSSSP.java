@@ -0,0 +1,297 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Delta-stepping algorithm for Single-Source Shortest Path.
+ * PRE-CONDITIONS: no negative edges
+ * Gives the same distances as DijkstraAlgo.computeShortestPaths.
+ *
+ * Vertices are kept in buckets of width delta by tentative distance. The
+ * smallest non-empty bucket is emptied repeatedly by relaxing the light
+ * edges (weight <= delta) of its vertices, which may put vertices back in the
+ * same bucket. Once it stays empty, the heavy edges (weight > delta) of every
+ * vertex removed from it are relaxed once, as they can only reach later
+ * buckets. All relaxations of a phase run in parallel on the given
+ * ForkJoinPool, lowering distances with compare-and-set.
+ * A small delta does little wasted work but has many phases, a large delta
+ * has more parallelism but re-relaxes more vertices. With delta set to 1 this
+ * behaves like Dijkstra's algorithm.
+ * Buckets are reused cyclically, and there are at most 2 per vertex plus 2
+ * however large the weights are compared to delta. Vertices too far ahead
+ * of the current bucket for the ring wait in a heap ordered by bucket, and
+ * move into the ring as it gets close to them.
+ */
+public class DeltaSteppingSSSP {
+
+    private static final int CHUNK_SIZE = 256; // vertices relaxed per task
+    private static final int SEQUENTIAL_THRESHOLD = 1024; // phases with
+    // fewer vertices are relaxed on the calling thread
+    private static final int DEFAULT_DELTA = 0; // pick delta from the graph
+    private static final int RING_PER_VERTEX = 2; // most buckets in the ring
+    // for each vertex
+
+    private final CompactGraph graph;
+    private final ForkJoinPool pool;
+    private final int delta;
+    private final AtomicIntegerArray dist; // tentative distances
+    private final int[] bucketOf; // bucket each vertex was last queued in,
+    // -1 if not queued. Older entries of the vertex are stale.
+    private final int[] settledIn; // last bucket that removed each vertex
+    private final IntList[] buckets; // cyclic, bucket b is buckets[b % length],
+    // made when first used
+    private final IndexedHeap far; // vertices whose bucket is past the ring,
+    // keyed by bucket. null if the ring covers every weight.
+    private final IntList[] chunkOutput; // improved vertices of each task
+    private int current; // bucket being emptied, vertices are queued in
+    // the ring if they are less than its length past it
+
+    /**
+     * Creates the engine with delta set to the largest weight divided by the
+     * average degree, which keeps the expected number of re-relaxations of
+     * a vertex constant for random weights.
+     */
+    DeltaSteppingSSSP(CompactGraph graph, ForkJoinPool pool) {
+        this(graph, pool, maxWeight(graph), DEFAULT_DELTA);
+    }
+
+    DeltaSteppingSSSP(CompactGraph graph, int delta, ForkJoinPool pool) {
+        this(graph, pool, maxWeight(graph), checkDelta(delta));
+    }
+
+    /**
+     * @param maxWeight Largest edge weight, so the edges are only scanned
+     * once.
+     * @param delta Bucket width, or DEFAULT_DELTA to derive it from
+     * maxWeight.
+     */
+    private DeltaSteppingSSSP(CompactGraph graph, ForkJoinPool pool,
+                              int maxWeight, int delta) {
+        if(delta == DEFAULT_DELTA)
+            delta = defaultDelta(graph, maxWeight);
+        int size = graph.numVertices();
+        this.graph = graph;
+        this.pool = pool;
+        this.delta = delta;
+        this.dist = new AtomicIntegerArray(size);
+        this.bucketOf = new int[size];
+        this.settledIn = new int[size];
+        // live tentative distances are never more than maxWeight apart, so
+        // this many buckets can be reused cyclically. Past the cap, the
+        // farthest vertices wait in the far heap instead.
+        long needed = maxWeight / delta + 2L;
+        long cap = Math.min(RING_PER_VERTEX * (long) size + 2,
+                Integer.MAX_VALUE - 8);
+        this.buckets = new IntList[(int) Math.min(needed, cap)];
+        this.far = needed > cap ? new IndexedHeap(size) : null;
+        this.chunkOutput = new IntList[pool.getParallelism() * 4];
+        for(int i = 0; i < this.chunkOutput.length; i++)
+            this.chunkOutput[i] = new IntList();
+    }
+
+    public int getDelta() { return this.delta; }
+
+    /**
+     * Computes the shortest distance from sourceVert to every vertex.
+     * @param sourceVert Vertex to compute distances from.
+     * @return distance of every vertex, Vertex.UNREACHABLE if unreachable.
+     */
+    public int[] computeDistances(int sourceVert) {
+        int size = this.graph.numVertices();
+        for(int i = 0; i < size; i++)
+            this.dist.set(i, Vertex.UNREACHABLE);
+        Arrays.fill(this.bucketOf, -1);
+        Arrays.fill(this.settledIn, -1);
+        for(IntList bucket : this.buckets)
+            if(bucket != null)
+                bucket.clear();
+        if(this.far != null)
+            this.far.clear();
+
+        IntList frontier = new IntList();
+        IntList removed = new IntList(); // vertices removed from the
+        // current bucket, whose heavy edges are still to be relaxed
+        this.current = 0;
+        this.dist.set(sourceVert, 0);
+        enqueue(sourceVert);
+
+        int ring = this.buckets.length;
+        int empty = 0; // consecutive empty buckets seen
+        while(true) {
+            int current = this.current;
+            if(this.far != null && pullFar())
+                empty = 0; // slots already seen empty may hold them now
+            IntList bucket = this.buckets[current % ring];
+            if(bucket == null || bucket.isEmpty()) {
+                if(++empty < ring) {
+                    this.current++;
+                    continue;
+                }
+                // The ring is empty, go on from the nearest far bucket
+                int next = nextFarBucket();
+                if(next < 0)
+                    break;
+                this.current = next;
+                empty = 0;
+                continue;
+            }
+            empty = 0;
+            removed.clear();
+            while(!bucket.isEmpty()) {
+                frontier.clear();
+                for(int i = 0; i < bucket.size; i++) {
+                    int v = bucket.data[i];
+                    if(this.bucketOf[v] != current) // stale entry
+                        continue;
+                    this.bucketOf[v] = -1;
+                    frontier.add(v);
+                    if(this.settledIn[v] != current) {
+                        this.settledIn[v] = current;
+                        removed.add(v);
+                    }
+                }
+                bucket.clear();
+                relax(frontier, true);
+            }
+            relax(removed, false);
+            this.current++;
+        }
+
+        int[] result = new int[size];
+        for(int i = 0; i < size; i++)
+            result[i] = this.dist.get(i);
+        return result;
+    }
+
+    /**
+     * Relaxes the light or heavy edges of every vertex in vertices, then
+     * queues every vertex whose distance was lowered in its new bucket.
+     */
+    private void relax(IntList vertices, boolean light) {
+        if(vertices.size < SEQUENTIAL_THRESHOLD) {
+            IntList improved = this.chunkOutput[0];
+            improved.clear();
+            relaxRange(vertices, 0, vertices.size, light, improved);
+            enqueueAll(improved);
+            return;
+        }
+
+        int chunks = Math.min(this.chunkOutput.length,
+                (vertices.size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        int perChunk = (vertices.size + chunks - 1) / chunks;
+        this.pool.submit(() -> IntStream.range(0, chunks).parallel()
+                .forEach(c -> {
+                    IntList improved = this.chunkOutput[c];
+                    improved.clear();
+                    relaxRange(vertices, c * perChunk, Math.min(vertices.size,
+                            (c + 1) * perChunk), light, improved);
+                })).join();
+        for(int c = 0; c < chunks; c++)
+            enqueueAll(this.chunkOutput[c]);
+    }
+
+    private void relaxRange(IntList vertices, int from, int to, boolean light,
+                            IntList improved) {
+        for(int i = from; i < to; i++) {
+            int u = vertices.data[i];
+            int uDist = this.dist.get(u);
+            for(long e = graph.firstEdge(u), end = graph.lastEdge(u); e < end;
+                e++) {
+                int wt = graph.weight(e);
+                if((wt <= this.delta) != light)
+                    continue;
+                int v = graph.target(e);
+                int newDist = uDist + wt;
+                int oldDist = this.dist.get(v);
+                while(newDist < oldDist) { // lower dist[v] unless another
+                    // thread lowered it further first
+                    if(this.dist.compareAndSet(v, oldDist, newDist)) {
+                        improved.add(v);
+                        break;
+                    }
+                    oldDist = this.dist.get(v);
+                }
+            }
+        }
+    }
+
+    private void enqueueAll(IntList improved) {
+        for(int i = 0; i < improved.size; i++)
+            enqueue(improved.data[i]);
+    }
+
+    // Queues v in the bucket of its current distance, unless already there
+    private void enqueue(int v) {
+        int bucket = this.dist.get(v) / this.delta;
+        if(this.bucketOf[v] == bucket)
+            return;
+        this.bucketOf[v] = bucket;
+        if(this.far != null && bucket - (long) this.current
+                >= this.buckets.length)
+            this.far.insertOrDecrease(v, bucket); // its old entry, if any,
+            // had a higher bucket
+        else
+            addToRing(v, bucket);
+    }
+
+    private void addToRing(int v, int bucket) {
+        int slot = bucket % this.buckets.length;
+        if(this.buckets[slot] == null)
+            this.buckets[slot] = new IntList();
+        this.buckets[slot].add(v);
+    }
+
+    // Moves the far vertices whose bucket is now inside the ring into it,
+    // returns true if any was moved
+    private boolean pullFar() {
+        boolean moved = false;
+        while(!this.far.isEmpty()
+                && this.far.peekKey() - this.current < this.buckets.length) {
+            int bucket = (int) this.far.peekKey();
+            int v = this.far.poll();
+            if(this.bucketOf[v] == bucket) { // else queued again since
+                addToRing(v, bucket);
+                moved = true;
+            }
+        }
+        return moved;
+    }
+
+    // Drops stale far entries, returns the bucket of the nearest live one or
+    // -1 if there is none
+    private int nextFarBucket() {
+        if(this.far == null)
+            return -1;
+        while(!this.far.isEmpty()
+                && this.bucketOf[this.far.peek()] != this.far.peekKey())
+            this.far.poll();
+        return this.far.isEmpty() ? -1 : (int) this.far.peekKey();
+    }
+
+    private static int checkDelta(int delta) {
+        if(delta < 1)
+            throw new IllegalArgumentException("Delta must be positive: "
+                    + delta);
+        return delta;
+    }
+
+    private static int maxWeight(CompactGraph graph) {
+        int max = 0;
+        for(long e = 0, end = graph.numEdges(); e < end; e++) {
+            int wt = graph.weight(e);
+            if(wt < 0)
+                throw new IllegalArgumentException("Negative edge weight: "
+                        + wt);
+            max = Math.max(max, wt);
+        }
+        return max;
+    }
+
+    private static int defaultDelta(CompactGraph graph, int maxWeight) {
+        if(graph.numEdges() == 0)
+            return 1;
+        double avgDegree = (double) graph.numEdges() / graph.numVertices();
+        return Math.max(1, (int) (maxWeight / Math.max(1.0, avgDegree)));
+    }
+}
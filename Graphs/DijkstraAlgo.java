@@ -5,15 +5,27 @@ import java.util.*;
  * PRE-CONDITIONS: no negative edges
  * Result is an ArrayList of vertices that each store the SHORTEST PATH from
  * the source vertex.
+ * When constructed with a CompactGraph, neighbours are scanned by edge index
+ * and the resulting vertices do not store any edges. The compact engine uses
+ * an IndexedHeap with real decrease-key instead of lazy deletion, so the heap
+ * holds at most V entries and the main loop allocates no objects.
+ * computeShortestPathTree returns a ShortestPaths, just the distance and
+ * parent of every vertex, and works with either kind of graph.
  */
 public class DijkstraAlgo {
 
     private DirectedGraph graph;
+    private CompactGraph compact; // used instead of graph when set
     private ArrayList<Vertex> vertexList;
     private boolean[] visited;
     private PriorityQueue<Vertex> minHeap; // MinHeap that keeps track of
     // current minimum vertex
     private int size;
+    private IndexedHeap indexedHeap; // heap of the compact engine
+    private int[] dist; // distances computed by the compact engine
+    private CSRGraph frozen; // graph frozen for computeShortestPathTree,
+    // when constructed with a DirectedGraph
+    private GraphMetrics metrics; // reported to after each run when set
 
     DijkstraAlgo(DirectedGraph graph, int size) {
         this.graph = graph;
@@ -26,20 +38,58 @@ public class DijkstraAlgo {
         }
     }
 
+    /**
+     * Creates the compact engine with a 4-ary indexed heap.
+     */
+    DijkstraAlgo(CompactGraph graph) {
+        this(graph, 4);
+    }
+
+    /**
+     * Creates the compact engine.
+     * @param graph Graph to run on.
+     * @param arity Number of children of each node of the indexed heap.
+     */
+    DijkstraAlgo(CompactGraph graph, int arity) {
+        this.compact = graph;
+        this.size = graph.numVertices();
+        this.indexedHeap = new IndexedHeap(size, arity);
+        this.dist = new int[size];
+    }
+
+    /**
+     * Method that sets the listener told about the work of every run, or
+     * null to stop reporting.
+     */
+    public void setMetrics(GraphMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public ArrayList<Vertex> computeShortestPaths(int sourceVert) {
+        if(this.compact != null)
+            return computeCompactShortestPaths(sourceVert);
         this.vertexList.get(sourceVert).setDistance(0);
         this.minHeap.offer(this.vertexList.get(sourceVert));
         int to;
+        long scanned = 0; // counted for metrics
+        long improved = 0;
+        long stalePops = 0;
+        int highWater = 1;
 
         while(!minHeap.isEmpty()) {
             Vertex curr = minHeap.poll(); // Get min item
             int currIdx = curr.getIndex(); // Get min item index
-            if(visited[currIdx])
+            if(visited[currIdx]) {
+                stalePops++;
                 continue; // If the node is already processed, skip. This
-            // eliminates the problem of queuing multiple of the same node.
+                // eliminates the problem of queuing multiple of the same node.
+            }
+            Vertex settled = this.vertexList.get(currIdx); // heap entries
+            // other than the source are copies without an edge list
             for(Edge e : graph._adjList.get(currIdx)) { // For each edge
                 // belonging to the current node
-                curr.addEdge(e);
+                scanned++;
+                settled.addEdge(e);
                 to = e.getTo(); // get the index of the edge going to
                 if(visited[to])
                     continue; // if neighbour is already processed, skip
@@ -49,10 +99,116 @@ public class DijkstraAlgo {
                     this.vertexList.get(to).setDistance(newDist); // set
                     // neighbour as new distance3
                     this.minHeap.offer(new Vertex(to, newDist));
+                    improved++;
+                    highWater = Math.max(highWater, this.minHeap.size());
                 }
             }
             visited[currIdx] = true;
         }
+        if(this.metrics != null) {
+            this.metrics.shortestPathRun(scanned, improved, stalePops);
+            this.metrics.heapHighWater(highWater);
+        }
+        return this.vertexList;
+    }
+
+    /**
+     * Runs the compact engine and stores the distances in the vertices.
+     */
+    private ArrayList<Vertex> computeCompactShortestPaths(int sourceVert) {
+        computeDistances(sourceVert);
+        if(this.vertexList == null) {
+            this.vertexList = new ArrayList<>(size);
+            for(int i = 0; i < size; i++)
+                this.vertexList.add(new Vertex(i));
+        }
+        for(int i = 0; i < size; i++)
+            this.vertexList.get(i).setDistance(this.dist[i]);
         return this.vertexList;
     }
+
+    /**
+     * Computes the shortest distance from sourceVert to every vertex using
+     * the compact engine. Relaxing an edge lowers the key of the neighbour in
+     * the indexed heap, so every vertex is polled at most once and settled
+     * vertices never need to be checked.
+     * The returned array is reused by the next call on this object.
+     * @param sourceVert Vertex to compute distances from.
+     * @return distance of every vertex, Vertex.UNREACHABLE if unreachable.
+     */
+    public int[] computeDistances(int sourceVert) {
+        if(this.compact == null)
+            throw new IllegalStateException("Not constructed with a "
+                    + "CompactGraph");
+        run(this.compact, sourceVert, this.dist, null);
+        return this.dist;
+    }
+
+    /**
+     * Computes the shortest path tree from sourceVert with the compact
+     * engine. A graph given as a DirectedGraph is frozen on the first call.
+     * @param sourceVert Vertex to compute paths from.
+     * @return the distance and parent of every vertex, in new arrays.
+     */
+    public ShortestPaths computeShortestPathTree(int sourceVert) {
+        CompactGraph graph = this.compact;
+        if(graph == null) {
+            if(this.frozen == null)
+                this.frozen = this.graph.freeze();
+            graph = this.frozen;
+        }
+        if(this.indexedHeap == null)
+            this.indexedHeap = new IndexedHeap(this.size);
+        int[] dist = new int[this.size];
+        int[] parent = new int[this.size];
+        run(graph, sourceVert, dist, parent);
+        return new ShortestPaths(sourceVert, dist, parent);
+    }
+
+    /**
+     * Main loop of the compact engine.
+     * @param parent Filled with the parent of every vertex in the shortest
+     * path tree if not null.
+     */
+    private void run(CompactGraph graph, int sourceVert, int[] dist,
+                     int[] parent) {
+        IndexedHeap heap = this.indexedHeap;
+        Arrays.fill(dist, Vertex.UNREACHABLE);
+        if(parent != null)
+            Arrays.fill(parent, ShortestPaths.NO_PARENT);
+        heap.clear();
+
+        dist[sourceVert] = 0;
+        heap.insert(sourceVert, 0);
+        boolean counting = this.metrics != null;
+        long scanned = 0; // counted for metrics
+        long improved = 0;
+        int highWater = 1;
+        while(!heap.isEmpty()) {
+            if(counting)
+                highWater = Math.max(highWater, heap.size());
+            int curr = heap.poll();
+            int currDist = dist[curr];
+            long first = graph.firstEdge(curr);
+            long end = graph.lastEdge(curr);
+            scanned += end - first;
+            for(long e = first; e < end; e++) {
+                int to = graph.target(e);
+                int newDist = currDist + graph.weight(e);
+                if(newDist < dist[to]) { // distance(v) + weight(v,w) <
+                    // distance(w), w is never settled here as weights are
+                    // not negative
+                    dist[to] = newDist;
+                    heap.insertOrDecrease(to, newDist);
+                    if(parent != null)
+                        parent[to] = curr;
+                    improved++;
+                }
+            }
+        }
+        if(counting) {
+            this.metrics.shortestPathRun(scanned, improved, 0);
+            this.metrics.heapHighWater(highWater);
+        }
+    }
 }
\ No newline at end of file
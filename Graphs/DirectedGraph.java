@@ -11,6 +11,10 @@ public class DirectedGraph {
     public void addEdge(int from, int to, int wt) {
         _adjList.get(from).add(new Edge(from, to, wt));
     }
+    // frozen primitive copy for algorithms that run on a CompactGraph
+    public CSRGraph freeze() {
+        return CSRGraph.fromDirectedGraph(this);
+    }
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("[ " + _adjList.size() + " vertices :\n");
@@ -0,0 +1,17 @@
+/**
+ * Receives the result of one single-source shortest path computation of a
+ * batch run by MultiSourceShortestPaths.
+ * Calls for different sources may happen at the same time on different
+ * threads.
+ */
+public interface DistanceConsumer {
+
+    /**
+     * @param sourceIndex Position of the source in the batch.
+     * @param source The source vertex.
+     * @param dist Distance of every vertex from source, Vertex.UNREACHABLE
+     * if unreachable. The array is reused once this method returns, so it
+     * must be copied if it is kept.
+     */
+    void accept(int sourceIndex, int source, int[] dist);
+}
@@ -0,0 +1,17 @@
+/**
+ * Lower bound on the distance between 2 vertices, used to guide A* search.
+ * PRE-CONDITIONS: the estimate must be consistent, i.e. never more than the
+ * real distance, and estimate(u, t) <= weight(u, v) + estimate(v, t) for
+ * every edge u->v. Euclidean distance on a road network where weights are
+ * lengths is consistent; a heuristic that always returns 0 gives Dijkstra's
+ * algorithm.
+ */
+public interface DistanceHeuristic {
+
+    /**
+     * @param vertex Vertex being considered.
+     * @param target Target vertex of the search.
+     * @return a lower bound on the distance from vertex to target.
+     */
+    int estimate(int vertex, int target);
+}
@@ -0,0 +1,266 @@
+import java.util.*;
+
+/**
+ * Single-source shortest paths that are kept up to date while edges are
+ * inserted, removed or change weight, without rerunning the whole search.
+ * PRE-CONDITIONS: no negative edges
+ *
+ * Starts from the result of DijkstraAlgo and keeps its own copy of the
+ * edges, so the DirectedGraph is not modified. Parallel edges are merged
+ * into the lightest one.
+ * - An edge that gets lighter (or a new edge) can only shorten paths through
+ * it: if it improves its target, the improvement is propagated with
+ * Dijkstra's algorithm, which only visits vertices whose distance drops.
+ * - An edge that gets heavier (or is removed) only matters if it is in the
+ * shortest path tree. Then only the subtree below it can get longer: the
+ * distances of the subtree are reset, each of its vertices takes the best
+ * edge coming from outside the subtree, and Dijkstra's algorithm is run
+ * within the subtree.
+ */
+public class DynamicShortestPaths {
+
+    private final int source;
+    private final int size;
+    private final int[] dist;
+    private final int[] parent;
+
+    private final int[][] outTo; // out edges of each vertex
+    private final int[][] outWt;
+    private final int[] outCount;
+    private final int[][] inFrom; // in edges of each vertex
+    private final int[][] inWt;
+    private final int[] inCount;
+
+    private final IndexedHeap heap;
+    private final int[] affected; // epoch in which each vertex was put in the
+    // subtree being repaired
+    private int epoch;
+    private final IntList subtree = new IntList();
+
+    /**
+     * Runs DijkstraAlgo from source to get the initial paths.
+     */
+    DynamicShortestPaths(DirectedGraph graph, int source) {
+        this(graph, new DijkstraAlgo(graph, graph._adjList.size())
+                .computeShortestPathTree(source));
+    }
+
+    /**
+     * @param graph Graph the paths were computed on.
+     * @param initial Result of DijkstraAlgo.computeShortestPathTree on graph.
+     * Its arrays are copied.
+     */
+    DynamicShortestPaths(DirectedGraph graph, ShortestPaths initial) {
+        this.source = initial.getSource();
+        this.size = graph._adjList.size();
+        this.dist = initial.getDistances().clone();
+        this.parent = initial.getParents().clone();
+        this.outTo = new int[size][];
+        this.outWt = new int[size][];
+        this.outCount = new int[size];
+        this.inFrom = new int[size][];
+        this.inWt = new int[size][];
+        this.inCount = new int[size];
+        this.heap = new IndexedHeap(size);
+        this.affected = new int[size];
+        for(int v = 0; v < size; v++)
+            for(Edge e : graph._adjList.get(v)) {
+                if(e.getWeight() < 0)
+                    throw new IllegalArgumentException("Negative edge: " + e);
+                int i = find(this.outTo[v], this.outCount[v], e.getTo());
+                if(i < 0)
+                    link(v, e.getTo(), e.getWeight());
+                else if(e.getWeight() < this.outWt[v][i])
+                    setWeight(v, e.getTo(), e.getWeight());
+            }
+    }
+
+    public int getSource() { return this.source; }
+
+    /**
+     * @return the shortest distance from the source, Vertex.UNREACHABLE if
+     * there is no path.
+     */
+    public int distance(int vertex) { return this.dist[vertex]; }
+
+    /**
+     * @return the vertex before vertex on its shortest path, -1 for the
+     * source and unreachable vertices.
+     */
+    public int parent(int vertex) { return this.parent[vertex]; }
+
+    /**
+     * @return a copy of the current paths.
+     */
+    public ShortestPaths toShortestPaths() {
+        return new ShortestPaths(this.source, this.dist.clone(),
+                this.parent.clone());
+    }
+
+    /**
+     * Method that adds an edge, or changes its weight if from already has an
+     * edge to to, and repairs the paths it affects.
+     * @return the number of vertices whose distance was recomputed.
+     */
+    public int setEdgeWeight(int from, int to, int wt) {
+        if(wt < 0)
+            throw new IllegalArgumentException("Negative weight: " + wt);
+        int i = find(this.outTo[from], this.outCount[from], to);
+        if(i < 0) {
+            link(from, to, wt);
+            return decreased(from, to, wt);
+        }
+        int old = this.outWt[from][i];
+        setWeight(from, to, wt);
+        if(wt < old)
+            return decreased(from, to, wt);
+        if(wt > old && this.parent[to] == from)
+            return repairSubtree(to);
+        return 0;
+    }
+
+    /**
+     * Method that removes the edge from from to to, if there is one, and
+     * repairs the paths it affects.
+     * @return the number of vertices whose distance was recomputed.
+     */
+    public int removeEdge(int from, int to) {
+        int i = find(this.outTo[from], this.outCount[from], to);
+        if(i < 0)
+            return 0;
+        unlink(from, i, to);
+        return this.parent[to] == from ? repairSubtree(to) : 0;
+    }
+
+    /**
+     * The edge from->to got lighter or was added. Lowers the distance of to
+     * if the edge improves it, and propagates the improvement.
+     */
+    private int decreased(int from, int to, int wt) {
+        if(this.dist[from] == Vertex.UNREACHABLE
+                || this.dist[from] + wt >= this.dist[to])
+            return 0;
+        this.dist[to] = this.dist[from] + wt;
+        this.parent[to] = from;
+        this.heap.insert(to, this.dist[to]);
+        return propagate();
+    }
+
+    /**
+     * The tree edge into root got heavier or was removed. Recomputes the
+     * distances of the subtree of root.
+     */
+    private int repairSubtree(int root) {
+        if(++this.epoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.affected, 0);
+            this.epoch = 1;
+        }
+        // Collect the subtree. Children of v are its out neighbours whose
+        // parent is v.
+        this.subtree.clear();
+        this.subtree.add(root);
+        this.affected[root] = this.epoch;
+        for(int i = 0; i < this.subtree.size; i++) {
+            int v = this.subtree.data[i];
+            for(int j = 0; j < this.outCount[v]; j++) {
+                int child = this.outTo[v][j];
+                if(this.parent[child] == v
+                        && this.affected[child] != this.epoch) {
+                    this.affected[child] = this.epoch;
+                    this.subtree.add(child);
+                }
+            }
+        }
+
+        // Best edge into each subtree vertex from outside the subtree
+        for(int i = 0; i < this.subtree.size; i++) {
+            int v = this.subtree.data[i];
+            this.dist[v] = Vertex.UNREACHABLE;
+            this.parent[v] = ShortestPaths.NO_PARENT;
+        }
+        for(int i = 0; i < this.subtree.size; i++) {
+            int v = this.subtree.data[i];
+            for(int j = 0; j < this.inCount[v]; j++) {
+                int from = this.inFrom[v][j];
+                if(this.affected[from] == this.epoch
+                        || this.dist[from] == Vertex.UNREACHABLE)
+                    continue;
+                int newDist = this.dist[from] + this.inWt[v][j];
+                if(newDist < this.dist[v]) {
+                    this.dist[v] = newDist;
+                    this.parent[v] = from;
+                }
+            }
+            if(this.dist[v] != Vertex.UNREACHABLE)
+                this.heap.insert(v, this.dist[v]);
+        }
+        propagate(); // distances outside the subtree cannot drop
+        return this.subtree.size;
+    }
+
+    /**
+     * Dijkstra's algorithm from the vertices in the heap, lowering the
+     * distances of their out neighbours.
+     * @return the number of vertices polled.
+     */
+    private int propagate() {
+        int polled = 0;
+        while(!this.heap.isEmpty()) {
+            int curr = this.heap.poll();
+            polled++;
+            int currDist = this.dist[curr];
+            for(int j = 0; j < this.outCount[curr]; j++) {
+                int to = this.outTo[curr][j];
+                int newDist = currDist + this.outWt[curr][j];
+                if(newDist < this.dist[to]) {
+                    this.dist[to] = newDist;
+                    this.parent[to] = curr;
+                    this.heap.insertOrDecrease(to, newDist);
+                }
+            }
+        }
+        return polled;
+    }
+
+    private void link(int from, int to, int wt) {
+        int out = this.outCount[from]++;
+        this.outTo[from] = append(this.outTo[from], out, to);
+        this.outWt[from] = append(this.outWt[from], out, wt);
+        int in = this.inCount[to]++;
+        this.inFrom[to] = append(this.inFrom[to], in, from);
+        this.inWt[to] = append(this.inWt[to], in, wt);
+    }
+
+    // Removes out edge i of from, and the matching in edge of to
+    private void unlink(int from, int i, int to) {
+        int last = --this.outCount[from];
+        this.outTo[from][i] = this.outTo[from][last];
+        this.outWt[from][i] = this.outWt[from][last];
+        int j = find(this.inFrom[to], this.inCount[to], from);
+        last = --this.inCount[to];
+        this.inFrom[to][j] = this.inFrom[to][last];
+        this.inWt[to][j] = this.inWt[to][last];
+    }
+
+    private void setWeight(int from, int to, int wt) {
+        this.outWt[from][find(this.outTo[from], this.outCount[from], to)] = wt;
+        this.inWt[to][find(this.inFrom[to], this.inCount[to], from)] = wt;
+    }
+
+    // Position of value among the first count entries of row, -1 if absent
+    private static int find(int[] row, int count, int value) {
+        for(int i = 0; i < count; i++)
+            if(row[i] == value)
+                return i;
+        return -1;
+    }
+
+    private static int[] append(int[] row, int count, int value) {
+        if(row == null)
+            row = new int[4];
+        else if(count == row.length)
+            row = Arrays.copyOf(row, count * 2);
+        row[count] = value;
+        return row;
+    }
+}
@@ -0,0 +1,203 @@
+import java.util.*;
+
+/**
+ * Topological order of a directed acyclic graph that is kept up to date as
+ * edges are added, using the Pearce-Kelly algorithm.
+ *
+ * Adding an edge from->to that already agrees with the order costs O(1).
+ * Otherwise only the vertices whose position lies between to and from can be
+ * affected: a forward search from to collects the ones it reaches, and a
+ * backward search from from collects the ones that reach it. If the forward
+ * search reaches from, the edge would close a cycle and is rejected.
+ * Otherwise the 2 sets are moved so that every vertex reaching from comes
+ * before every vertex reached from to, reusing only the positions they
+ * already held, and the rest of the order is untouched.
+ */
+public class DynamicTopoOrder {
+
+    private final DirectedGraph graph;
+    private final int size;
+    private final int[] ord; // position of each vertex in the order
+    private final int[] vertexAt; // vertex at each position
+    private final int[][] outAdj; // primitive copies of the edges, in both
+    // directions, for the searches
+    private final int[][] inAdj;
+    private final int[] outCount;
+    private final int[] inCount;
+
+    private final int[] visited; // epoch in which each vertex was visited
+    private int epoch;
+    private final IntList stack = new IntList();
+    private final IntList forward = new IntList(); // reached from to
+    private final IntList backward = new IntList(); // reaching from
+    private long[] sortBuffer = new long[16];
+    private int[] positions = new int[16];
+
+    /**
+     * Computes the order of the edges already in the graph with Kahn's
+     * algorithm.
+     * @param graph Graph whose edges are added through this object from now
+     * on.
+     * @throws IllegalArgumentException if the graph contains a cycle.
+     */
+    DynamicTopoOrder(DirectedGraph graph) {
+        this.graph = graph;
+        this.size = graph._adjList.size();
+        this.ord = new int[size];
+        this.vertexAt = new int[size];
+        this.outAdj = new int[size][];
+        this.inAdj = new int[size][];
+        this.outCount = new int[size];
+        this.inCount = new int[size];
+        this.visited = new int[size];
+        for(int v = 0; v < size; v++)
+            for(Edge e : graph._adjList.get(v))
+                link(v, e.getTo());
+
+        int[] inDeg = this.inCount.clone();
+        int head = 0;
+        int tail = 0; // vertexAt doubles as the queue of Kahn's algorithm
+        for(int v = 0; v < size; v++)
+            if(inDeg[v] == 0)
+                this.vertexAt[tail++] = v;
+        while(head < tail) {
+            int curr = this.vertexAt[head];
+            this.ord[curr] = head++;
+            for(int i = 0; i < this.outCount[curr]; i++)
+                if(--inDeg[this.outAdj[curr][i]] == 0)
+                    this.vertexAt[tail++] = this.outAdj[curr][i];
+        }
+        if(tail < size)
+            throw new IllegalArgumentException("Graph contains a cycle");
+    }
+
+    /**
+     * Method that adds an edge to the graph unless it would close a cycle,
+     * and updates the order.
+     * @return true if the edge was added, false if it was rejected because
+     * to already reaches from.
+     */
+    public boolean addEdge(int from, int to, int wt) {
+        if(from == to)
+            return false;
+        int lower = this.ord[to];
+        int upper = this.ord[from];
+        if(lower < upper) { // edge goes against the order
+            if(++this.epoch == Integer.MAX_VALUE) {
+                Arrays.fill(this.visited, 0);
+                this.epoch = 1;
+            }
+            if(!searchForward(to, upper))
+                return false;
+            searchBackward(from, lower);
+            reorder();
+        }
+        link(from, to);
+        this.graph.addEdge(from, to, wt);
+        return true;
+    }
+
+    /**
+     * @return position of vertex in the topological order.
+     */
+    public int position(int vertex) { return this.ord[vertex]; }
+
+    /**
+     * @return the vertex at a position of the topological order.
+     */
+    public int vertexAt(int position) { return this.vertexAt[position]; }
+
+    /**
+     * @return a copy of the topological order.
+     */
+    public int[] order() { return this.vertexAt.clone(); }
+
+    /**
+     * Collects the vertices reachable from start with position below upper.
+     * @return false if the vertex at upper is reached, which means a cycle.
+     */
+    private boolean searchForward(int start, int upper) {
+        this.forward.clear();
+        this.stack.clear();
+        this.stack.add(start);
+        this.visited[start] = this.epoch;
+        while(!this.stack.isEmpty()) {
+            int curr = this.stack.data[--this.stack.size];
+            this.forward.add(curr);
+            for(int i = 0; i < this.outCount[curr]; i++) {
+                int next = this.outAdj[curr][i];
+                if(this.ord[next] == upper)
+                    return false;
+                if(this.visited[next] != this.epoch && this.ord[next] < upper) {
+                    this.visited[next] = this.epoch;
+                    this.stack.add(next);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Collects the vertices that reach start with position above lower
+    private void searchBackward(int start, int lower) {
+        this.backward.clear();
+        this.stack.clear();
+        this.stack.add(start);
+        this.visited[start] = this.epoch;
+        while(!this.stack.isEmpty()) {
+            int curr = this.stack.data[--this.stack.size];
+            this.backward.add(curr);
+            for(int i = 0; i < this.inCount[curr]; i++) {
+                int prev = this.inAdj[curr][i];
+                if(this.visited[prev] != this.epoch && this.ord[prev] > lower) {
+                    this.visited[prev] = this.epoch;
+                    this.stack.add(prev);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives the backward set, then the forward set, each in its current
+     * relative order, the positions both sets held before.
+     */
+    private void reorder() {
+        int total = this.backward.size + this.forward.size;
+        if(this.sortBuffer.length < total) {
+            this.sortBuffer = new long[total * 2];
+            this.positions = new int[total * 2];
+        }
+        sortByPosition(this.backward, 0);
+        sortByPosition(this.forward, this.backward.size);
+        for(int i = 0; i < total; i++)
+            this.positions[i] = (int) (this.sortBuffer[i] >>> 32);
+        Arrays.sort(this.positions, 0, total);
+        for(int i = 0; i < total; i++) {
+            int vertex = (int) this.sortBuffer[i];
+            this.ord[vertex] = this.positions[i];
+            this.vertexAt[this.positions[i]] = vertex;
+        }
+    }
+
+    // Writes (position, vertex) of each vertex from offset, sorted
+    private void sortByPosition(IntList vertices, int offset) {
+        for(int i = 0; i < vertices.size; i++) {
+            int v = vertices.data[i];
+            this.sortBuffer[offset + i] = ((long) this.ord[v] << 32) | v;
+        }
+        Arrays.sort(this.sortBuffer, offset, offset + vertices.size);
+    }
+
+    private void link(int from, int to) {
+        this.outAdj[from] = append(this.outAdj[from], this.outCount[from]++, to);
+        this.inAdj[to] = append(this.inAdj[to], this.inCount[to]++, from);
+    }
+
+    private static int[] append(int[] row, int count, int value) {
+        if(row == null)
+            row = new int[4];
+        else if(count == row.length)
+            row = Arrays.copyOf(row, count * 2);
+        row[count] = value;
+        return row;
+    }
+}
@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Converts a text edge list into a graph file that MappedGraph can open.
+ *
+ * Each line holds one directed edge, "from to" or "from to weight", with
+ * the numbers separated by spaces, tabs or commas. Edges without a weight
+ * get weight 1. Blank lines and lines starting with # or % are skipped, and
+ * so is a UTF-8 byte order mark at the start of the file. Any other byte
+ * in an edge line makes it malformed. The number of vertices is one more
+ * than the largest vertex id.
+ *
+ * The input is read twice and never held in memory: the first pass counts
+ * the edges of every vertex to lay out the offsets, and the second pass
+ * writes every edge straight into its slot of the mapped output file. Only
+ * O(V) memory is used, however many edges there are. The edges of each
+ * vertex keep the order they have in the input.
+ */
+public class EdgeListConverter {
+
+    /**
+     * Method that converts a text edge list into a graph file, replacing
+     * the file if it exists.
+     * @param edgeList Text file to be read.
+     * @param graphFile Graph file to be written.
+     * @throws IllegalArgumentException if a line is not a valid edge.
+     */
+    public static void convert(Path edgeList, Path graphFile)
+            throws IOException {
+        int[] degree = new int[16]; // number of edges of each vertex
+        int numVertices = 0;
+        long numEdges = 0;
+        try(EdgeReader reader = new EdgeReader(Files.newInputStream(
+                edgeList))) {
+            while(reader.next()) {
+                int maxId = Math.max(reader.from, reader.to);
+                if(maxId >= degree.length)
+                    degree = Arrays.copyOf(degree, Math.max(maxId + 1,
+                            degree.length * 2));
+                numVertices = Math.max(numVertices, maxId + 1);
+                degree[reader.from]++;
+                numEdges++;
+            }
+        }
+
+        try(FileChannel channel = MappedGraph.create(graphFile)) {
+            ChunkedBuffer data = ChunkedBuffer.map(channel,
+                    FileChannel.MapMode.READ_WRITE, 0,
+                    MappedGraph.fileSize(numVertices, numEdges));
+            MappedGraph.writeHeader(data, numVertices, numEdges);
+            long[] next = new long[numVertices]; // next free edge of each
+            // vertex
+            long offset = 0;
+            for(int v = 0; v < numVertices; v++) {
+                data.putLong(MappedGraph.HEADER_BYTES + 8L * v, offset);
+                next[v] = offset;
+                offset += degree[v];
+            }
+            data.putLong(MappedGraph.HEADER_BYTES + 8L * numVertices, offset);
+            degree = null; // no longer needed, let it be collected
+
+            long targetsAt = MappedGraph.targetsAt(numVertices);
+            long weightsAt = targetsAt + 4 * numEdges;
+            try(EdgeReader reader = new EdgeReader(Files.newInputStream(
+                    edgeList))) {
+                while(reader.next()) {
+                    long e = next[reader.from]++;
+                    data.putInt(targetsAt + 4 * e, reader.to);
+                    data.putInt(weightsAt + 4 * e, reader.weight);
+                }
+            }
+            data.force();
+        }
+    }
+
+    /**
+     * Reads edges from a text stream without creating a String per line.
+     */
+    private static class EdgeReader implements AutoCloseable {
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int pos;
+        private int limit;
+        private long line = 1; // current line, for error messages
+        private boolean started; // byte order mark checked
+        private final long[] fields = new long[3];
+        int from;
+        int to;
+        int weight;
+
+        EdgeReader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads the next edge into from, to and weight.
+         * @return false at the end of the input.
+         */
+        boolean next() throws IOException {
+            if(!this.started) {
+                this.started = true;
+                skipByteOrderMark();
+            }
+            while(true) {
+                int c = skipSeparators();
+                if(c < 0)
+                    return false;
+                if(c == '\n' || c == '\r') {
+                    endLine();
+                    continue;
+                }
+                if(c == '#' || c == '%') {
+                    while(c >= 0 && c != '\n' && c != '\r') {
+                        this.pos++;
+                        c = peek();
+                    }
+                    continue;
+                }
+
+                int count = 0;
+                while(c >= 0 && c != '\n' && c != '\r') {
+                    if(count == this.fields.length)
+                        throw malformed();
+                    this.fields[count++] = readNumber();
+                    c = skipSeparators();
+                }
+                if(count < 2 || this.fields[0] < 0 || this.fields[1] < 0
+                        || this.fields[0] > Integer.MAX_VALUE - 1
+                        || this.fields[1] > Integer.MAX_VALUE - 1)
+                    throw malformed();
+                this.from = (int) this.fields[0];
+                this.to = (int) this.fields[1];
+                if(count == 3) {
+                    if(this.fields[2] < Integer.MIN_VALUE
+                            || this.fields[2] > Integer.MAX_VALUE)
+                        throw malformed();
+                    this.weight = (int) this.fields[2];
+                }
+                else
+                    this.weight = 1;
+                return true;
+            }
+        }
+
+        public void close() throws IOException {
+            this.in.close();
+        }
+
+        // Reads an integer starting at the current byte
+        private long readNumber() throws IOException {
+            boolean negative = false;
+            if(peek() == '-') {
+                negative = true;
+                this.pos++;
+            }
+            long value = 0;
+            int digits = 0;
+            int c = peek();
+            while(c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if(++digits > 10) // more than any int
+                    throw malformed();
+                this.pos++;
+                c = peek();
+            }
+            if(digits == 0 || (c >= 0 && c != ' ' && c != '\t' && c != ','
+                    && c != '\n' && c != '\r'))
+                throw malformed();
+            return negative ? -value : value;
+        }
+
+        // Skips the UTF-8 byte order mark EF BB BF if the input starts with it
+        private void skipByteOrderMark() throws IOException {
+            if(peek() != 0xEF)
+                return;
+            this.pos++;
+            if(peek() != 0xBB)
+                throw malformed();
+            this.pos++;
+            if(peek() != 0xBF)
+                throw malformed();
+            this.pos++;
+        }
+
+        // Skips spaces, tabs and commas, returns the next byte or -1
+        private int skipSeparators() throws IOException {
+            int c = peek();
+            while(c == ' ' || c == '\t' || c == ',') {
+                this.pos++;
+                c = peek();
+            }
+            return c;
+        }
+
+        // Consumes a line break, counting \r\n as one
+        private void endLine() throws IOException {
+            if(peek() == '\r') {
+                this.pos++;
+                if(peek() == '\n')
+                    this.pos++;
+            }
+            else
+                this.pos++;
+            this.line++;
+        }
+
+        // Returns the current byte without consuming it, from 0 to 255, or
+        // -1 at the end
+        private int peek() throws IOException {
+            if(this.pos == this.limit) {
+                this.limit = this.in.read(this.buffer);
+                this.pos = 0;
+                if(this.limit <= 0) {
+                    this.limit = 0;
+                    return -1;
+                }
+            }
+            return this.buffer[this.pos] & 0xFF;
+        }
+
+        private IllegalArgumentException malformed() {
+            return new IllegalArgumentException("Malformed edge on line "
+                    + this.line);
+        }
+    }
+}
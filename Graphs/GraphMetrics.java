@@ -0,0 +1,31 @@
+/**
+ * Listener that graph algorithms report their work to, to tell whether a
+ * slow run is caused by the shape of the graph or by heap churn. Give one
+ * to an algorithm with setMetrics.
+ * Algorithms count in local variables and report once per run, except
+ * UnionFind, which reports every findRoot. When no listener is set nothing
+ * is counted. Implementations may be called from many threads at once.
+ */
+public interface GraphMetrics {
+
+    /**
+     * Called at the end of a shortest path run.
+     * @param scanned Number of edges relaxed (scanned from a settled vertex).
+     * @param improved Number of relaxations that lowered a distance.
+     * @param stalePops Number of heap entries polled for a vertex that was
+     * already settled. Always 0 for heaps with decrease-key.
+     */
+    void shortestPathRun(long scanned, long improved, long stalePops);
+
+    /**
+     * Called at the end of a run that uses a heap.
+     * @param highWater Largest number of entries the heap held.
+     */
+    void heapHighWater(int highWater);
+
+    /**
+     * Called by UnionFind.findRoot.
+     * @param length Number of parent links followed to reach the root.
+     */
+    void findRootPath(int length);
+}
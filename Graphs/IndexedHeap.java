@@ -0,0 +1,168 @@
+import java.util.*;
+
+/**
+ * Indexed d-ary min heap of int ids from 0 to capacity - 1, each with a long
+ * key. Unlike a PriorityQueue, the heap knows where every id is stored, so
+ * the key of an id already in the heap can be decreased in place instead of
+ * inserting a duplicate entry. The heap never holds more than capacity
+ * entries and no operation allocates.
+ *
+ * Heap Property: the key of a parent is no larger than the keys of its
+ * children. Children of heap[i] are heap[d*i + 1] to heap[d*i + d].
+ * A larger arity gives a shallower heap, so decreaseKey (bubble up) is
+ * cheaper while poll (bubble down) compares more children per level.
+ */
+public class IndexedHeap {
+
+    private final int arity;
+    private final int[] heap; // ids in heap order, heap[0] has the min key
+    private final int[] pos; // position of each id in heap, -1 if absent
+    private final long[] keys; // key of each id currently in the heap
+    private int size;
+
+    /**
+     * Creates a 4-ary heap.
+     * @param capacity Number of ids the heap can hold.
+     */
+    IndexedHeap(int capacity) {
+        this(capacity, 4);
+    }
+
+    IndexedHeap(int capacity, int arity) {
+        if(arity < 2)
+            throw new IllegalArgumentException("Arity must be at least 2: "
+                    + arity);
+        this.arity = arity;
+        this.heap = new int[capacity];
+        this.pos = new int[capacity];
+        this.keys = new long[capacity];
+        Arrays.fill(this.pos, -1);
+    }
+
+    public boolean isEmpty() { return this.size == 0; }
+    public int size() { return this.size; }
+    public int capacity() { return this.heap.length; }
+    public boolean contains(int id) { return this.pos[id] >= 0; }
+    public long key(int id) { return this.keys[id]; }
+
+    /**
+     * @return the id with the smallest key, without removing it.
+     */
+    public int peek() { return this.heap[0]; }
+
+    /**
+     * @return the smallest key in the heap.
+     */
+    public long peekKey() { return this.keys[this.heap[0]]; }
+
+    /**
+     * Method that inserts an id that is not in the heap.
+     * @param id Id to be inserted.
+     * @param key Priority of the id.
+     */
+    public void insert(int id, long key) {
+        this.keys[id] = key;
+        this.pos[id] = this.size;
+        this.heap[this.size] = id;
+        bubbleUp(this.size++);
+    }
+
+    /**
+     * Method that lowers the key of an id already in the heap.
+     * @param id Id whose key is lowered.
+     * @param key New priority, no larger than the current one.
+     */
+    public void decreaseKey(int id, long key) {
+        this.keys[id] = key;
+        bubbleUp(this.pos[id]);
+    }
+
+    /**
+     * Inserts the id if absent, or lowers its key if key is smaller than the
+     * key it currently has.
+     * @return true if the heap changed.
+     */
+    public boolean insertOrDecrease(int id, long key) {
+        if(this.pos[id] < 0) {
+            insert(id, key);
+            return true;
+        }
+        if(key < this.keys[id]) {
+            decreaseKey(id, key);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Method that removes the id with the smallest key.
+     * @return the removed id.
+     */
+    public int poll() {
+        int result = this.heap[0];
+        this.pos[result] = -1;
+        if(--this.size > 0) {
+            int last = this.heap[this.size];
+            this.heap[0] = last;
+            this.pos[last] = 0;
+            bubbleDown(0);
+        }
+        return result;
+    }
+
+    /**
+     * Method that removes every id from the heap. Only positions of ids still
+     * in the heap are reset, so the cost is O(size) rather than O(capacity).
+     */
+    public void clear() {
+        for(int i = 0; i < this.size; i++)
+            this.pos[this.heap[i]] = -1;
+        this.size = 0;
+    }
+
+    // Moves the id at index up until its parent has a smaller key
+    private void bubbleUp(int index) {
+        int id = this.heap[index];
+        long key = this.keys[id];
+        while(index > 0) {
+            int parent = (index - 1) / this.arity;
+            int parentId = this.heap[parent];
+            if(this.keys[parentId] <= key)
+                break;
+            this.heap[index] = parentId;
+            this.pos[parentId] = index;
+            index = parent;
+        }
+        this.heap[index] = id;
+        this.pos[id] = index;
+    }
+
+    // Moves the id at index down until all its children have larger keys
+    private void bubbleDown(int index) {
+        int id = this.heap[index];
+        long key = this.keys[id];
+        while(true) {
+            int first = this.arity * index + 1;
+            if(first >= this.size)
+                break;
+            int last = Math.min(first + this.arity, this.size);
+            int minChild = first;
+            long minKey = this.keys[this.heap[first]];
+            for(int child = first + 1; child < last; child++) {
+                long childKey = this.keys[this.heap[child]];
+                if(childKey < minKey) {
+                    minChild = child;
+                    minKey = childKey;
+                }
+            }
+            if(minKey >= key)
+                break;
+            int childId = this.heap[minChild];
+            this.heap[index] = childId;
+            this.pos[childId] = index;
+            index = minChild;
+        }
+        this.heap[index] = id;
+        this.pos[id] = index;
+    }
+}
@@ -0,0 +1,40 @@
+import java.util.*;
+
+/**
+ * Growable list of primitive ints, used as scratch space by the graph
+ * engines so that vertex lists are not boxed into Integers.
+ */
+class IntList {
+
+    int[] data; // elements are stored from index 0 to size - 1
+    int size;
+
+    IntList() {
+        this(16);
+    }
+
+    IntList(int capacity) {
+        this.data = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int value) {
+        if(this.size == this.data.length)
+            this.data = Arrays.copyOf(this.data, this.size * 2);
+        this.data[this.size++] = value;
+    }
+
+    public void addAll(IntList other) {
+        if(this.size + other.size > this.data.length)
+            this.data = Arrays.copyOf(this.data, Math.max(this.size * 2,
+                    this.size + other.size));
+        System.arraycopy(other.data, 0, this.data, this.size, other.size);
+        this.size += other.size;
+    }
+
+    public int get(int index) { return this.data[index]; }
+    public int size() { return this.size; }
+    public boolean isEmpty() { return this.size == 0; }
+    public void clear() { this.size = 0; }
+
+    public int[] toArray() { return Arrays.copyOf(this.data, this.size); }
+}
@@ -1,118 +1,241 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Algorithm implementation of Kruskal's Algorithm which finds
  * the minimum spanning tree on a undirected graph.
  * Uses the concept of Union-Find, Weighted Union and Path Compression.
+ * Stops as soon as V - 1 edges are in the tree.
+ *
+ * When constructed with a CompactGraph, findSpanningTree runs
+ * filter-Kruskal: edges are primitive (weight, edge index) keys, and large
+ * ranges of keys are split around a pivot weight. The lighter half is
+ * processed first, then every heavier edge whose endpoints are already
+ * connected is filtered out in parallel before the heavier half is split
+ * or sorted. On most graphs the tree is complete long before the heaviest
+ * edges would have been sorted.
  */
 public class KruskalMST {
 
-    private int[] parent; // array that stores the parent of the ith vertex
+    private static final int SORT_THRESHOLD = 1 << 16; // ranges of keys up to
+    // this size are sorted directly instead of being split
+    private static final int FILTER_CHUNK = 1 << 14; // keys filtered per task
+
     private DirectedGraph graph; // Implementation uses directed graph in an
     // undirected manner
-    private int[] size; // arrau that stores the size of a component tree
     private int numVertex;
+    private CompactGraph compact; // used instead of graph when set
+    private ForkJoinPool pool; // used to sort and filter compact edges
+    private GraphMetrics metrics; // told the heap high water mark of each
+    // run when set
+
+    // State of a findSpanningTree run
+    private long[] keys; // weight in the high half, edge index in the low
+    private int[] from; // from vertex of each edge
+    private UnionFind components;
+    private int[] treeFrom;
+    private int[] treeTo;
+    private int[] treeWeight;
+    private int treeSize;
+
+    KruskalMST(CompactGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    KruskalMST(CompactGraph graph, ForkJoinPool pool) {
+        this(graph.numVertices(), (DirectedGraph) null);
+        this.compact = graph;
+        this.pool = pool;
+    }
 
     KruskalMST(int numVertex, DirectedGraph graph) {
         this.numVertex = numVertex;
-        this.parent = new int[numVertex];
-        this.size = new int[numVertex];
         this.graph = graph;
-        for(int i = 0; i < numVertex; i++) {
-            this.parent[i] = i;
-            this.size[i] = 1;
-        }
+    }
+
+    /**
+     * Method that sets the listener told about the work of every run, or
+     * null to stop reporting. findSpanningTree sorts arrays instead of using
+     * a heap and reports nothing.
+     */
+    public void setMetrics(GraphMetrics metrics) {
+        this.metrics = metrics;
     }
 
     public DirectedGraph findMST() {
+        if(this.compact != null)
+            return findSpanningTree().toDirectedGraph();
         DirectedGraph result = new DirectedGraph(this.numVertex); // resulting
         // graph to store MST
         PriorityQueue<Edge> minHeap = getMinEdges(); // Get a minHeap of
         // Edges to process
-        HashSet<Integer> visited = new HashSet<>(); // Set that stores the
-        // indexes of vertices that are processed
+        if(this.metrics != null) // the heap only shrinks
+            this.metrics.heapHighWater(minHeap.size());
+        UnionFind components = new UnionFind(this.numVertex);
+        int accepted = 0; // number of edges in the MST so far
 
-        while(visited.size() < this.numVertex) {
+        while(accepted < this.numVertex - 1 && !minHeap.isEmpty()) {
             Edge curr = minHeap.poll();
 
-            if(find(curr.getTo(), curr.getFrom())) // If both vertices are
-                // already connected, skip
+            if(!components.union(curr.getTo(), curr.getFrom())) // If both
+                // vertices are already connected, skip
                 continue;
 
-            union(curr.getTo(), curr.getFrom()); // join both components
             result.addEdge(curr.getFrom(), curr.getTo(), curr.getWeight());
-            visited.add(curr.getTo());
-            visited.add(curr.getFrom());
+            accepted++;
         }
         return result;
     }
 
-    private PriorityQueue<Edge> getMinEdges() {
-        PriorityQueue<Edge> minHeap = new PriorityQueue<>();
-        for(LinkedList<Edge> list : this.graph._adjList)
-            for(Edge e : list)
-                minHeap.offer(e);
-
-        return minHeap;
+    /**
+     * Runs parallel filter-Kruskal on the CompactGraph.
+     * @return the edges of the minimum spanning tree, or forest if the graph
+     * is not connected, and their total weight.
+     */
+    public SpanningTree findSpanningTree() {
+        if(this.compact == null)
+            throw new IllegalStateException("Not constructed with a "
+                    + "CompactGraph");
+        long numEdges = this.compact.numEdges();
+        if(numEdges > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many edges to sort: "
+                    + numEdges);
+        this.keys = new long[(int) numEdges];
+        this.from = new int[(int) numEdges];
+        this.pool.submit(() -> IntStream.range(0, this.numVertex).parallel()
+                .forEach(v -> {
+                    for(long e = compact.firstEdge(v), end = compact.lastEdge
+                            (v); e < end; e++) {
+                        this.keys[(int) e] = ((long) compact.weight(e) << 32)
+                                | e;
+                        this.from[(int) e] = v;
+                    }
+                })).join();
+        this.components = new UnionFind(this.numVertex);
+        int maxSize = Math.max(this.numVertex - 1, 0);
+        this.treeFrom = new int[maxSize];
+        this.treeTo = new int[maxSize];
+        this.treeWeight = new int[maxSize];
+        this.treeSize = 0;
+
+        filterKruskal(0, this.keys.length);
+
+        SpanningTree result = new SpanningTree(this.numVertex, this.treeFrom,
+                this.treeTo, this.treeWeight, this.treeSize);
+        this.keys = null;
+        this.from = null;
+        this.components = null;
+        return result;
     }
 
     /**
-     * Method that finds the root of 2 components, and returns if the 2
-     * components are connected
-     * @return true if connected, else false
+     * Adds the tree edges among keys[lo] to keys[hi - 1], every one of
+     * which is heavier than all keys before lo.
      */
-    private boolean find(int first, int second) {
-        // Gets the root of each vertex, and applies path compression
-        while(this.parent[first] != first) {
-            this.parent[first] = this.parent[parent[first]];
-            first = this.parent[first];
+    private void filterKruskal(int lo, int hi) {
+        if(this.treeSize == this.numVertex - 1 || lo >= hi)
+            return;
+        if(hi - lo <= SORT_THRESHOLD) {
+            sortAndScan(lo, hi);
+            return;
         }
-        while(this.parent[second] != second) {
-            this.parent[second] = this.parent[parent[second]];
-            first = this.parent[second];
+
+        long pivot = pivot(lo, hi);
+        int mid = partition(lo, hi, pivot);
+        if(mid == lo || mid == hi) { // pivot split nothing off
+            sortAndScan(lo, hi);
+            return;
         }
+        filterKruskal(lo, mid);
+        if(this.treeSize == this.numVertex - 1)
+            return;
+        filterKruskal(mid, filter(mid, hi));
+    }
+
+    private void sortAndScan(int lo, int hi) {
+        Arrays.parallelSort(this.keys, lo, hi);
+        for(int i = lo; i < hi && this.treeSize < this.numVertex - 1; i++) {
+            int e = (int) this.keys[i];
+            int to = this.compact.target(e);
+            if(this.components.union(this.from[e], to)) { // skip if already
+                // connected
+                this.treeFrom[this.treeSize] = this.from[e];
+                this.treeTo[this.treeSize] = to;
+                this.treeWeight[this.treeSize] = this.compact.weight(e);
+                this.treeSize++;
+            }
+        }
+    }
 
-        return (first == second);
+    // Median of 9 keys spread over the range
+    private long pivot(int lo, int hi) {
+        long[] sample = new long[9];
+        long step = (hi - lo) / sample.length;
+        for(int i = 0; i < sample.length; i++)
+            sample[i] = this.keys[lo + (int) (i * step)];
+        Arrays.sort(sample);
+        return sample[sample.length / 2];
     }
 
     /**
-     * Method that connects 2 components if they're not connected,
-     * else prints error message saying that cycle is detected.
+     * Moves keys smaller than pivot to the front of the range.
+     * @return index of the first key not smaller than pivot.
      */
-    private boolean union(int first, int second) {
-        // Get root of both components
-        first = findRoot(first);
-        second = findRoot(second);
-
-        /**
-         * Using weighted union to merge smaller tree into larger tree using
-         * size array
-         */
-        if (second != first) { // if different component, merge both components
-            if (this.size[first] > this.size[second]) {// if first component
-                // larger than second, merge second into first
-                this.parent[second] = first;
-                this.size[first] += this.size[second];
-            } else {
-                this.parent[first] = second;
-                this.size[second] += this.size[first];
-            }
-
-            return true;
+    private int partition(int lo, int hi, long pivot) {
+        int i = lo;
+        int j = hi - 1;
+        while(true) {
+            while(i <= j && this.keys[i] < pivot)
+                i++;
+            while(i <= j && this.keys[j] >= pivot)
+                j--;
+            if(i >= j)
+                return i;
+            long temp = this.keys[i];
+            this.keys[i] = this.keys[j];
+            this.keys[j] = temp;
         }
-        // Else there is a cycle
-        return false;
     }
 
     /**
-     * Method that finds the root of a vertex.
-     * @param child
-     * @return the root of the vertex child
+     * Removes keys whose endpoints are already connected, keeping the rest
+     * at the front of the range. Chunks are compacted in parallel, which only
+     * reads the union-find, and then moved together.
+     * @return the new end of the range.
      */
-    private int findRoot(int child) {
-        while(this.parent[child] != child)
-            child = this.parent[child];
+    private int filter(int lo, int hi) {
+        int chunks = (hi - lo + FILTER_CHUNK - 1) / FILTER_CHUNK;
+        int[] kept = new int[chunks];
+        this.pool.submit(() -> IntStream.range(0, chunks).parallel()
+                .forEach(c -> {
+                    int start = lo + c * FILTER_CHUNK;
+                    int end = Math.min(hi, start + FILTER_CHUNK);
+                    int next = start;
+                    for(int i = start; i < end; i++) {
+                        int e = (int) this.keys[i];
+                        if(this.components.findRoot(this.from[e])
+                                != this.components.findRoot(
+                                this.compact.target(e)))
+                            this.keys[next++] = this.keys[i];
+                    }
+                    kept[c] = next - start;
+                })).join();
+
+        int end = lo;
+        for(int c = 0; c < chunks; c++) {
+            System.arraycopy(this.keys, lo + c * FILTER_CHUNK, this.keys, end,
+                    kept[c]);
+            end += kept[c];
+        }
+        return end;
+    }
+
+    private PriorityQueue<Edge> getMinEdges() {
+        ArrayList<Edge> edges = new ArrayList<>();
+        for(LinkedList<Edge> list : this.graph._adjList)
+            edges.addAll(list);
 
-        return child;
+        return new PriorityQueue<>(edges); // heapifies in O(E)
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CompactGraph read directly from a graph file mapped into memory, so
+ * opening a graph costs no parsing or copying, and pages are loaded by the
+ * operating system as they are used. Edge indices are longs, so graphs with
+ * more than 2^31 edges can be opened.
+ *
+ * File format, all values little endian:
+ * - Header of 24 bytes: MAGIC (int), VERSION (int), number of vertices
+ * (int), 0 (int), number of edges (long).
+ * - Offsets: numVertices + 1 longs, where the edges of vertex v are
+ * offsets[v] to offsets[v + 1] - 1.
+ * - Targets: numEdges ints.
+ * - Weights: numEdges ints.
+ * Write a file with MappedGraph.write, or from a text edge list with
+ * EdgeListConverter.
+ */
+public class MappedGraph implements CompactGraph {
+
+    static final int MAGIC = 0x47525343; // "CSRG" read as little endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    private final ChunkedBuffer data;
+    private final int numVertices;
+    private final long numEdges;
+    private final long targetsAt; // byte index of the first target
+    private final long weightsAt; // byte index of the first weight
+
+    private MappedGraph(ChunkedBuffer data, int numVertices, long numEdges) {
+        this.data = data;
+        this.numVertices = numVertices;
+        this.numEdges = numEdges;
+        this.targetsAt = targetsAt(numVertices);
+        this.weightsAt = this.targetsAt + 4 * numEdges;
+    }
+
+    /**
+     * Maps a graph file into memory, read only.
+     * @param file Graph file written by write or EdgeListConverter.
+     * @return the graph, backed by the file.
+     * @throws IOException if the file cannot be read or is not a graph file.
+     */
+    public static MappedGraph open(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) { // mappings outlive the channel
+            long fileSize = channel.size();
+            if(fileSize < HEADER_BYTES)
+                throw new IOException("Not a graph file: " + file);
+            ChunkedBuffer data = ChunkedBuffer.map(channel,
+                    FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if(data.getInt(0) != MAGIC)
+                throw new IOException("Not a graph file: " + file);
+            if(data.getInt(4) != VERSION)
+                throw new IOException("Unsupported graph file version "
+                        + data.getInt(4) + ": " + file);
+            int numVertices = data.getInt(8);
+            long numEdges = data.getLong(16);
+            if(numVertices < 0 || numEdges < 0
+                    || fileSize != fileSize(numVertices, numEdges))
+                throw new IOException("Truncated graph file: " + file);
+            return new MappedGraph(data, numVertices, numEdges);
+        }
+    }
+
+    /**
+     * Method that writes a graph to a graph file, replacing the file if it
+     * exists.
+     * @param graph Graph to be written, e.g. a DirectedGraph frozen with
+     * freeze().
+     * @param file File to be written.
+     */
+    public static void write(CompactGraph graph, Path file)
+            throws IOException {
+        int numVertices = graph.numVertices();
+        long numEdges = graph.numEdges();
+        try(FileChannel channel = create(file)) {
+            ChunkedBuffer data = ChunkedBuffer.map(channel,
+                    FileChannel.MapMode.READ_WRITE, 0,
+                    fileSize(numVertices, numEdges));
+            writeHeader(data, numVertices, numEdges);
+            long targetsAt = targetsAt(numVertices);
+            long weightsAt = targetsAt + 4 * numEdges;
+            for(int v = 0; v < numVertices; v++)
+                data.putLong(HEADER_BYTES + 8L * v, graph.firstEdge(v));
+            data.putLong(HEADER_BYTES + 8L * numVertices, numEdges);
+            for(long e = 0; e < numEdges; e++) {
+                data.putInt(targetsAt + 4 * e, graph.target(e));
+                data.putInt(weightsAt + 4 * e, graph.weight(e));
+            }
+            data.force();
+        }
+    }
+
+    public int numVertices() { return this.numVertices; }
+    public long numEdges() { return this.numEdges; }
+
+    public long firstEdge(int vertex) {
+        return this.data.getLong(HEADER_BYTES + 8L * vertex);
+    }
+
+    public long lastEdge(int vertex) {
+        return this.data.getLong(HEADER_BYTES + 8L * (vertex + 1));
+    }
+
+    public int target(long edge) {
+        return this.data.getInt(this.targetsAt + 4 * edge);
+    }
+
+    public int weight(long edge) {
+        return this.data.getInt(this.weightsAt + 4 * edge);
+    }
+
+    static FileChannel create(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    static void writeHeader(ChunkedBuffer data, int numVertices,
+                            long numEdges) {
+        data.putInt(0, MAGIC);
+        data.putInt(4, VERSION);
+        data.putInt(8, numVertices);
+        data.putInt(12, 0);
+        data.putLong(16, numEdges);
+    }
+
+    // Byte index of the first target, just after the offsets
+    static long targetsAt(int numVertices) {
+        return HEADER_BYTES + 8L * (numVertices + 1);
+    }
+
+    static long fileSize(int numVertices, long numEdges) {
+        return targetsAt(numVertices) + 8 * numEdges;
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs single-source shortest paths from a batch of sources on a shared,
+ * read-only graph. PRE-CONDITIONS: no negative edges
+ * Sources are split into a few chunks per thread of a ForkJoinPool. Each
+ * chunk makes one compact DijkstraAlgo and reuses its distance array and
+ * IndexedHeap for every source in the chunk, so a batch allocates nothing
+ * per source apart from the rows of the result. The engines belong to the
+ * call, and are garbage once it returns.
+ */
+public class MultiSourceShortestPaths {
+
+    private static final int CHUNKS_PER_THREAD = 4; // so threads that finish
+    // early can take chunks from the others
+
+    private final CompactGraph graph;
+    private final ForkJoinPool pool;
+
+    MultiSourceShortestPaths(CompactGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    /**
+     * Computes the distance from every source to every vertex.
+     * @param sources Source vertices of the batch.
+     * @return matrix where [i][v] is the distance from sources[i] to v.
+     */
+    public int[][] computeMatrix(int[] sources) {
+        int[][] result = new int[sources.length][];
+        computeAll(sources, (i, source, dist) -> result[i] = dist.clone());
+        return result;
+    }
+
+    /**
+     * Computes the distance from every source to every target.
+     * @param sources Source vertices of the batch.
+     * @param targets Target vertices.
+     * @return matrix where [i][j] is the distance from sources[i] to
+     * targets[j].
+     */
+    public int[][] computeMatrix(int[] sources, int[] targets) {
+        int[][] result = new int[sources.length][targets.length];
+        computeAll(sources, (i, source, dist) -> {
+            int[] row = result[i];
+            for(int j = 0; j < targets.length; j++)
+                row[j] = dist[targets[j]];
+        });
+        return result;
+    }
+
+    /**
+     * Computes the distance between every pair of vertices, using every
+     * vertex as a source. Needs V * V ints.
+     * @return matrix where [u][v] is the distance from u to v.
+     */
+    public int[][] computeAllPairs() {
+        int[] sources = new int[this.graph.numVertices()];
+        for(int i = 0; i < sources.length; i++)
+            sources[i] = i;
+        return computeMatrix(sources);
+    }
+
+    /**
+     * Computes distances from every source in parallel, streaming each
+     * result to consumer instead of storing it. Returns once every source
+     * has been passed to consumer.
+     * @param sources Source vertices of the batch.
+     * @param consumer Called once per source, possibly from several threads
+     * at once.
+     */
+    public void computeAll(int[] sources, DistanceConsumer consumer) {
+        if(sources.length == 0)
+            return;
+        int chunkSize = Math.max(1, sources.length
+                / (this.pool.getParallelism() * CHUNKS_PER_THREAD));
+        this.pool.invoke(new Batch(sources, 0, sources.length, chunkSize,
+                consumer));
+    }
+
+    /**
+     * Runs sources[from] to sources[to - 1], halving the range until it is
+     * at most chunkSize long, then running the chunk on one engine.
+     */
+    private class Batch extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] sources;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final DistanceConsumer consumer;
+
+        Batch(int[] sources, int from, int to, int chunkSize,
+              DistanceConsumer consumer) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.to - this.from > this.chunkSize) {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new Batch(this.sources, this.from, mid,
+                        this.chunkSize, this.consumer),
+                        new Batch(this.sources, mid, this.to, this.chunkSize,
+                                this.consumer));
+                return;
+            }
+            DijkstraAlgo engine = new DijkstraAlgo(graph);
+            for(int i = this.from; i < this.to; i++) {
+                int[] dist = engine.computeDistances(this.sources[i]);
+                this.consumer.accept(i, this.sources[i], dist);
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * CompactGraph stored outside the Java heap, in direct ByteBuffers, so a
+ * large graph adds nothing for the garbage collector to scan or copy.
+ * Offsets and edge indices are longs, so more than 2^31 edges can be held.
+ * Each vertex costs 8 bytes and each edge 8 bytes (target and weight).
+ *
+ * Edges are added like the rows of a CSRGraph: all edges of vertex 0, then
+ * all edges of vertex 1, and so on, up to exactly the number of edges given
+ * to the constructor. The graph can be read once the last edge is added:
+ * until then, and after close, every method but numVertices throws
+ * IllegalStateException.
+ * The memory is freed by close, or else when the GC collects the graph,
+ * which may take long with a small heap that rarely fills up.
+ * DijkstraAlgo, TopoSort and PrimMST run on it unchanged, whatever the
+ * number of edges. KruskalMST and BoruvkaMST sort or copy edges into Java
+ * arrays and so need fewer than 2^31 edges.
+ */
+public class OffHeapGraph implements CompactGraph, AutoCloseable {
+
+    private static final Object UNSAFE; // sun.misc.Unsafe and its
+    // invokeCleaner, or null if the JVM does not have them
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            unsafe = null; // direct memory is then only freed by the GC
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final ChunkedBuffer offsets; // offsets[v] as longs
+    private final ChunkedBuffer edges; // target and weight of each edge as
+    // 2 ints, so both are read from the same cache line
+    private final int numVertices;
+    private final long numEdges;
+    private long added; // number of edges added so far
+    private int lastFrom; // from vertex of the last edge added
+    private boolean readable; // every edge added and not closed
+    private boolean closed;
+
+    /**
+     * Allocates the memory for a graph, with no edges added yet.
+     * @param numVertices Number of vertices.
+     * @param numEdges Number of edges that will be added.
+     */
+    OffHeapGraph(int numVertices, long numEdges) {
+        this.numVertices = numVertices;
+        this.numEdges = numEdges;
+        this.offsets = ChunkedBuffer.allocateDirect(8L * (numVertices + 1));
+        this.edges = ChunkedBuffer.allocateDirect(8 * numEdges);
+        if(numEdges == 0) {
+            fillOffsets(0, numVertices);
+            this.readable = true;
+        }
+    }
+
+    /**
+     * Copies a graph off the heap, e.g. a CSRGraph, or a MappedGraph that
+     * should be kept in memory rather than read from its file.
+     * @return the copy.
+     */
+    public static OffHeapGraph copyOf(CompactGraph graph) {
+        OffHeapGraph result = new OffHeapGraph(graph.numVertices(),
+                graph.numEdges());
+        for(int v = 0; v < graph.numVertices(); v++)
+            for(long e = graph.firstEdge(v), end = graph.lastEdge(v); e < end;
+                e++)
+                result.addEdge(v, graph.target(e), graph.weight(e));
+        return result;
+    }
+
+    /**
+     * Method that adds the next edge. Edges must be added in order of from
+     * vertex.
+     * @throws IllegalArgumentException if from or to is not a vertex, from
+     * is smaller than the from vertex of the previous edge, or all edges
+     * were already added.
+     */
+    public void addEdge(int from, int to, int wt) {
+        if(this.closed)
+            throw new IllegalStateException("Graph is closed");
+        if(from < 0 || from >= this.numVertices)
+            throw new IllegalArgumentException("Invalid from vertex: " + from);
+        if(to < 0 || to >= this.numVertices)
+            throw new IllegalArgumentException("Invalid to vertex: " + to);
+        if(this.added == this.numEdges)
+            throw new IllegalArgumentException("All " + this.numEdges
+                    + " edges were already added");
+        if(from < this.lastFrom)
+            throw new IllegalArgumentException("Edges must be added in order "
+                    + "of from vertex: " + from + " after " + this.lastFrom);
+        fillOffsets(this.added == 0 ? 0 : this.lastFrom + 1, from);
+        this.lastFrom = from;
+        this.edges.putInt(8 * this.added, to);
+        this.edges.putInt(8 * this.added + 4, wt);
+        if(++this.added == this.numEdges) { // complete, close the
+            // remaining rows
+            fillOffsets(from + 1, this.numVertices);
+            this.readable = true;
+        }
+    }
+
+    /**
+     * @return true once every edge has been added, until close.
+     */
+    public boolean isComplete() { return this.readable; }
+
+    /**
+     * Method that frees the memory of the graph. It must not be called while
+     * other threads are reading the graph. Does nothing if already closed.
+     */
+    public void close() {
+        if(this.closed)
+            return;
+        this.closed = true;
+        this.readable = false;
+        free(this.offsets);
+        free(this.edges);
+    }
+
+    public int numVertices() { return this.numVertices; }
+
+    public long numEdges() {
+        checkReadable();
+        return this.numEdges;
+    }
+
+    public long firstEdge(int vertex) {
+        checkReadable();
+        return this.offsets.getLong(8L * vertex);
+    }
+
+    public long lastEdge(int vertex) {
+        checkReadable();
+        return this.offsets.getLong(8L * (vertex + 1));
+    }
+
+    public int target(long edge) {
+        checkReadable();
+        return this.edges.getInt(8 * edge);
+    }
+
+    public int weight(long edge) {
+        checkReadable();
+        return this.edges.getInt(8 * edge + 4);
+    }
+
+    // Frees the chunks of buffer right away if the JVM allows it, else
+    // leaves them to the GC
+    private static void free(ChunkedBuffer buffer) {
+        for(ByteBuffer chunk : buffer.release()) {
+            if(chunk == null || INVOKE_CLEANER == null)
+                continue;
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, chunk);
+            } catch(ReflectiveOperationException e) {
+                // left to the GC
+            }
+        }
+    }
+
+    private void checkReadable() {
+        if(!this.readable)
+            throw new IllegalStateException(this.closed ? "Graph is closed"
+                    : "Only " + this.added + " of " + this.numEdges
+                    + " edges added");
+    }
+
+    // Starts the rows of vertices first to last (inclusive) at the next edge
+    private void fillOffsets(int first, int last) {
+        for(int v = first; v <= last; v++)
+            this.offsets.putLong(8L * v, this.added);
+    }
+}
@@ -0,0 +1,293 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel breadth-first search for hop distances, ignoring edge weights.
+ * Gives the same distances as DijkstraAlgo with every weight set to 1,
+ * without any heap.
+ *
+ * Direction-optimizing: each level is expanded in one of 2 ways.
+ * - Top-down: every vertex of the frontier scans its out edges and claims
+ * the unvisited neighbours with compare-and-set on a visited bitset. Cheap
+ * while the frontier is small.
+ * - Bottom-up: every unvisited vertex scans its in edges until it finds one
+ * from the frontier, which is kept as a bitset. Once the frontier holds a
+ * large part of the graph most unvisited vertices find a parent after a few
+ * edges, so far fewer edges are read than top-down.
+ * The search switches to bottom-up when the edges out of the frontier are
+ * more than 1/ALPHA of the edges out of unvisited vertices, and back to
+ * top-down when the frontier shrinks below 1/BETA of the vertices.
+ * Both steps run in parallel on the given ForkJoinPool. Distances are the
+ * same on every run, but a vertex with several parents in the previous level
+ * may get a different one each time.
+ * Every search has its own scratch space, so one instance can serve many
+ * searches at once from different threads.
+ */
+public class ParallelBFS {
+
+    private static final int ALPHA = 14; // switch to bottom-up when frontier
+    // edges > unexplored edges / ALPHA
+    private static final int BETA = 24; // switch to top-down when frontier
+    // size < vertices / BETA
+    private static final int CHUNK_SIZE = 256; // frontier vertices or bitset
+    // words processed per task
+    private static final int SEQUENTIAL_THRESHOLD = 1024; // smaller top-down
+    // frontiers are expanded on the calling thread
+
+    private final CompactGraph graph;
+    private volatile CompactGraph reverse; // in edges for bottom-up, built
+    // on the first bottom-up step if not given
+    private final ForkJoinPool pool;
+    private final int size;
+    private final int numChunks; // most tasks per step
+
+    /**
+     * Output of the tasks of one step, made for each search.
+     */
+    private static final class Chunks {
+        final IntList[] found; // vertices found by each task
+        final long[] edges; // out edges of the vertices found by each task
+
+        Chunks(int count) {
+            this.found = new IntList[count];
+            this.edges = new long[count];
+            for(int i = 0; i < count; i++)
+                this.found[i] = new IntList();
+        }
+    }
+
+    /**
+     * Freezes graph and searches it on the common pool.
+     */
+    ParallelBFS(DirectedGraph graph) {
+        this(graph.freeze(), ForkJoinPool.commonPool());
+    }
+
+    ParallelBFS(CompactGraph graph, ForkJoinPool pool) {
+        this(graph, null, pool);
+    }
+
+    /**
+     * @param reverse Transpose of graph, or graph itself if every edge is
+     * stored in both directions. null to build it when first needed.
+     */
+    ParallelBFS(CompactGraph graph, CompactGraph reverse, ForkJoinPool pool) {
+        this.graph = graph;
+        this.reverse = reverse;
+        this.pool = pool;
+        this.size = graph.numVertices();
+        this.numChunks = pool.getParallelism() * 4;
+    }
+
+    /**
+     * Method that finds the fewest edges from source to every vertex.
+     * @return the hop distance and parent of every vertex, distance
+     * Vertex.UNREACHABLE if there is no path.
+     */
+    public ShortestPaths search(int source) {
+        int[] dist = new int[this.size];
+        int[] parent = new int[this.size];
+        Arrays.fill(dist, Vertex.UNREACHABLE);
+        Arrays.fill(parent, ShortestPaths.NO_PARENT);
+        int words = (this.size + 63) >>> 6;
+        AtomicLongArray visited = new AtomicLongArray(words);
+        if((this.size & 63) != 0) // bits past the last vertex count as
+            // visited, so bottom-up never looks at them
+            visited.set(words - 1, -1L << (this.size & 63));
+        long[] frontierBits = null; // only used bottom-up
+        long[] nextBits = null;
+        CompactGraph reverse = null;
+        Chunks chunks = new Chunks(this.numChunks);
+
+        int[] queue = new int[this.size]; // visited vertices in the order
+        // found, the frontier is queue[start] to queue[end - 1]
+        dist[source] = 0;
+        visited.set(source >>> 6, visited.get(source >>> 6) | 1L << source);
+        queue[0] = source;
+        int start = 0;
+        int end = 1;
+        long frontierEdges = degree(source);
+        long unexploredEdges = this.graph.numEdges() - frontierEdges;
+        boolean bottomUp = false;
+        int prevFrontier = 0;
+        for(int depth = 0; start < end; depth++) {
+            int frontier = end - start;
+            if(!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+                bottomUp = true;
+                if(frontierBits == null) {
+                    frontierBits = new long[words];
+                    nextBits = new long[words];
+                    reverse = reverse();
+                }
+                Arrays.fill(frontierBits, 0);
+                for(int i = start; i < end; i++)
+                    frontierBits[queue[i] >>> 6] |= 1L << queue[i];
+            }
+            else if(bottomUp && frontier < prevFrontier
+                    && frontier < this.size / BETA)
+                bottomUp = false;
+            prevFrontier = frontier;
+
+            int found = bottomUp
+                    ? bottomUpStep(reverse, frontierBits, nextBits, visited,
+                            dist, parent, depth + 1, chunks)
+                    : topDownStep(queue, start, end, visited, dist, parent,
+                            depth + 1, chunks);
+            start = end;
+            frontierEdges = 0;
+            for(int c = 0; c < found; c++) {
+                IntList list = chunks.found[c];
+                System.arraycopy(list.data, 0, queue, end, list.size);
+                end += list.size;
+                frontierEdges += chunks.edges[c];
+            }
+            unexploredEdges -= frontierEdges;
+            if(bottomUp) {
+                long[] swap = frontierBits;
+                frontierBits = nextBits;
+                nextBits = swap;
+            }
+        }
+        return new ShortestPaths(source, dist, parent);
+    }
+
+    /**
+     * Expands queue[from] to queue[to - 1] along their out edges.
+     * @return the number of chunk outputs filled.
+     */
+    private int topDownStep(int[] queue, int from, int to,
+                            AtomicLongArray visited, int[] dist, int[] parent,
+                            int depth, Chunks chunks) {
+        if(to - from < SEQUENTIAL_THRESHOLD) {
+            topDownRange(queue, from, to, visited, dist, parent, depth,
+                    chunks, 0);
+            return 1;
+        }
+        int count = Math.min(this.numChunks,
+                (to - from + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        int perChunk = (to - from + count - 1) / count;
+        this.pool.submit(() -> IntStream.range(0, count).parallel()
+                .forEach(c -> topDownRange(queue, from + c * perChunk,
+                        Math.min(to, from + (c + 1) * perChunk), visited,
+                        dist, parent, depth, chunks, c))).join();
+        return count;
+    }
+
+    private void topDownRange(int[] queue, int from, int to,
+                              AtomicLongArray visited, int[] dist,
+                              int[] parent, int depth, Chunks chunks,
+                              int chunk) {
+        IntList found = chunks.found[chunk];
+        found.clear();
+        long edges = 0;
+        for(int i = from; i < to; i++) {
+            int curr = queue[i];
+            for(long e = graph.firstEdge(curr), end = graph.lastEdge(curr);
+                e < end; e++) {
+                int next = graph.target(e);
+                if(dist[next] == Vertex.UNREACHABLE && claim(visited, next)) {
+                    // the plain read only skips most visited vertices, the
+                    // claim decides which thread owns next
+                    dist[next] = depth;
+                    parent[next] = curr;
+                    found.add(next);
+                    edges += degree(next);
+                }
+            }
+        }
+        chunks.edges[chunk] = edges;
+    }
+
+    /**
+     * Finds a parent in frontier for every unvisited vertex, along their in
+     * edges. Each task owns a range of bitset words, so only the claims of
+     * top-down need compare-and-set.
+     * @return the number of chunk outputs filled.
+     */
+    private int bottomUpStep(CompactGraph reverse, long[] frontier,
+                             long[] next, AtomicLongArray visited, int[] dist,
+                             int[] parent, int depth, Chunks chunks) {
+        int words = frontier.length;
+        int count = Math.min(this.numChunks,
+                (words + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        int perChunk = (words + count - 1) / count;
+        if(count == 1)
+            bottomUpRange(reverse, 0, words, frontier, next, visited, dist,
+                    parent, depth, chunks, 0);
+        else
+            this.pool.submit(() -> IntStream.range(0, count).parallel()
+                    .forEach(c -> bottomUpRange(reverse, c * perChunk,
+                            Math.min(words, (c + 1) * perChunk), frontier,
+                            next, visited, dist, parent, depth, chunks, c)))
+                    .join();
+        return count;
+    }
+
+    private void bottomUpRange(CompactGraph reverse, int fromWord, int toWord,
+                               long[] frontier, long[] next,
+                               AtomicLongArray visited, int[] dist,
+                               int[] parent, int depth, Chunks chunks,
+                               int chunk) {
+        IntList found = chunks.found[chunk];
+        found.clear();
+        long edges = 0;
+        for(int w = fromWord; w < toWord; w++) {
+            long seen = visited.get(w);
+            long unvisited = ~seen;
+            long nextWord = 0;
+            while(unvisited != 0) {
+                int bit = Long.numberOfTrailingZeros(unvisited);
+                unvisited &= unvisited - 1;
+                int curr = (w << 6) + bit;
+                for(long e = reverse.firstEdge(curr),
+                    end = reverse.lastEdge(curr); e < end; e++) {
+                    int from = reverse.target(e);
+                    if((frontier[from >>> 6] & 1L << from) != 0) {
+                        dist[curr] = depth;
+                        parent[curr] = from;
+                        nextWord |= 1L << bit;
+                        found.add(curr);
+                        edges += degree(curr);
+                        break;
+                    }
+                }
+            }
+            next[w] = nextWord;
+            if(nextWord != 0)
+                visited.set(w, seen | nextWord);
+        }
+        chunks.edges[chunk] = edges;
+    }
+
+    // Gets the reverse graph, building it once if it was not given
+    private CompactGraph reverse() {
+        CompactGraph reverse = this.reverse;
+        if(reverse == null) {
+            synchronized(this) {
+                reverse = this.reverse;
+                if(reverse == null)
+                    this.reverse = reverse = CSRGraph.reverse(this.graph);
+            }
+        }
+        return reverse;
+    }
+
+    // Sets the visited bit of vertex, false if it was already set
+    private static boolean claim(AtomicLongArray visited, int vertex) {
+        int w = vertex >>> 6;
+        long bit = 1L << vertex;
+        while(true) {
+            long old = visited.get(w);
+            if((old & bit) != 0)
+                return false;
+            if(visited.compareAndSet(w, old, old | bit))
+                return true;
+        }
+    }
+
+    private long degree(int vertex) {
+        return this.graph.lastEdge(vertex) - this.graph.firstEdge(vertex);
+    }
+}
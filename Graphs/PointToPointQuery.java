@@ -0,0 +1,241 @@
+import java.util.*;
+
+/**
+ * Reusable engine for shortest path queries between a source and a target
+ * vertex. PRE-CONDITIONS: no negative edges
+ *
+ * All scratch arrays are allocated once when the query object is built.
+ * Instead of being cleared between queries, every entry is stamped with the
+ * query number (epoch) that wrote it, and entries with an older stamp are
+ * treated as unreached. A query therefore only costs the vertices it
+ * actually visits.
+ *
+ * Without a heuristic, queries run bidirectional Dijkstra: one search
+ * forward from the source and one backward from the target on the reversed
+ * graph, always advancing the smaller heap, until the smallest keys of the
+ * 2 heaps add up to at least the best path seen where they meet.
+ * With a DistanceHeuristic, queries run A* forward from the source, keyed by
+ * distance + estimate to the target, and stop when the target is settled.
+ *
+ * A query object is not thread safe, use one per thread.
+ */
+public class PointToPointQuery {
+
+    private final CompactGraph graph;
+    private final CompactGraph reverse; // null in A* mode
+    private final DistanceHeuristic heuristic; // null in bidirectional mode
+
+    // Forward search from the source
+    private final int[] distF;
+    private final int[] parentF; // previous vertex on the path from source
+    private final int[] seenF; // epoch in which distF was last set
+    private final int[] settledF; // epoch in which the vertex was settled
+    private final IndexedHeap heapF;
+    // Backward search from the target
+    private final int[] distB;
+    private final int[] parentB; // next vertex on the path to target
+    private final int[] seenB;
+    private final int[] settledB;
+    private final IndexedHeap heapB;
+
+    private int epoch;
+    private int meeting; // vertex joining both searches on the best path,
+    // the target in A* mode, -1 if unreachable
+
+    /**
+     * Creates a query engine for bidirectional Dijkstra. Builds the reversed
+     * graph once.
+     */
+    PointToPointQuery(CompactGraph graph) {
+        this(graph, CSRGraph.reverse(graph), null);
+    }
+
+    /**
+     * Creates a query engine for A* with the given heuristic.
+     */
+    PointToPointQuery(CompactGraph graph, DistanceHeuristic heuristic) {
+        this(graph, null, heuristic);
+    }
+
+    private PointToPointQuery(CompactGraph graph, CompactGraph reverse,
+                              DistanceHeuristic heuristic) {
+        int size = graph.numVertices();
+        this.graph = graph;
+        this.reverse = reverse;
+        this.heuristic = heuristic;
+        this.distF = new int[size];
+        this.parentF = new int[size];
+        this.seenF = new int[size];
+        this.settledF = new int[size];
+        this.heapF = new IndexedHeap(size);
+        boolean bidirectional = reverse != null;
+        this.distB = bidirectional ? new int[size] : null;
+        this.parentB = bidirectional ? new int[size] : null;
+        this.seenB = bidirectional ? new int[size] : null;
+        this.settledB = bidirectional ? new int[size] : null;
+        this.heapB = bidirectional ? new IndexedHeap(size) : null;
+    }
+
+    /**
+     * Computes the shortest distance from source to target.
+     * @return the distance, Vertex.UNREACHABLE if target is unreachable.
+     */
+    public int distance(int source, int target) {
+        return this.heuristic == null ? bidirectional(source, target)
+                : aStar(source, target);
+    }
+
+    /**
+     * Computes a shortest path from source to target.
+     * @return the vertices on the path, starting with source and ending with
+     * target, or an empty array if target is unreachable.
+     */
+    public int[] path(int source, int target) {
+        distance(source, target);
+        if(this.meeting < 0)
+            return new int[0];
+
+        int length = 1;
+        for(int v = this.meeting; v != source; v = this.parentF[v])
+            length++;
+        if(this.heuristic == null)
+            for(int v = this.meeting; v != target; v = this.parentB[v])
+                length++;
+
+        int[] path = new int[length];
+        int idx = 0;
+        for(int v = this.meeting; v != source; v = this.parentF[v])
+            path[idx++] = v;
+        path[idx++] = source;
+        for(int i = 0, j = idx - 1; i < j; i++, j--) { // reverse the half
+            // from source to the meeting vertex
+            int temp = path[i];
+            path[i] = path[j];
+            path[j] = temp;
+        }
+        if(this.heuristic == null)
+            for(int v = this.meeting; v != target; ) {
+                v = this.parentB[v];
+                path[idx++] = v;
+            }
+        return path;
+    }
+
+    private int bidirectional(int source, int target) {
+        int epoch = nextEpoch();
+        this.heapF.clear();
+        this.heapB.clear();
+        this.meeting = source == target ? source : -1;
+        if(source == target)
+            return 0;
+
+        int best = Vertex.UNREACHABLE;
+        this.seenF[source] = epoch;
+        this.distF[source] = 0;
+        this.heapF.insert(source, 0);
+        this.seenB[target] = epoch;
+        this.distB[target] = 0;
+        this.heapB.insert(target, 0);
+
+        while(!this.heapF.isEmpty() && !this.heapB.isEmpty()) {
+            if(this.heapF.peekKey() + this.heapB.peekKey() >= best)
+                break; // no unsettled vertex can give a shorter path
+            if(this.heapF.size() <= this.heapB.size())
+                best = expand(this.graph, this.heapF, this.distF,
+                        this.parentF, this.seenF, this.settledF, this.distB,
+                        this.seenB, best);
+            else
+                best = expand(this.reverse, this.heapB, this.distB,
+                        this.parentB, this.seenB, this.settledB, this.distF,
+                        this.seenF, best);
+        }
+        return best;
+    }
+
+    /**
+     * Settles the minimum vertex of one search and relaxes its edges. Each
+     * vertex reached by the other search is a candidate meeting point.
+     * @return the best source to target distance seen so far.
+     */
+    private int expand(CompactGraph graph, IndexedHeap heap, int[] dist,
+                       int[] parent, int[] seen, int[] settled,
+                       int[] otherDist, int[] otherSeen, int best) {
+        int epoch = this.epoch;
+        int curr = heap.poll();
+        settled[curr] = epoch;
+        int currDist = dist[curr];
+        for(long e = graph.firstEdge(curr), end = graph.lastEdge(curr);
+            e < end; e++) {
+            int to = graph.target(e);
+            if(settled[to] == epoch)
+                continue;
+            int newDist = currDist + graph.weight(e);
+            if(seen[to] != epoch) {
+                seen[to] = epoch;
+            } else if(newDist >= dist[to]) {
+                continue;
+            }
+            dist[to] = newDist;
+            parent[to] = curr;
+            heap.insertOrDecrease(to, newDist);
+            if(otherSeen[to] == epoch && newDist + otherDist[to] < best) {
+                best = newDist + otherDist[to];
+                this.meeting = to;
+            }
+        }
+        return best;
+    }
+
+    private int aStar(int source, int target) {
+        int epoch = nextEpoch();
+        this.heapF.clear();
+        this.meeting = -1;
+        this.seenF[source] = epoch;
+        this.distF[source] = 0;
+        this.heapF.insert(source, this.heuristic.estimate(source, target));
+
+        while(!this.heapF.isEmpty()) {
+            int curr = this.heapF.poll();
+            if(curr == target) {
+                this.meeting = target;
+                return this.distF[target];
+            }
+            this.settledF[curr] = epoch;
+            int currDist = this.distF[curr];
+            for(long e = graph.firstEdge(curr), end = graph.lastEdge(curr);
+                e < end; e++) {
+                int to = graph.target(e);
+                if(this.settledF[to] == epoch)
+                    continue;
+                int newDist = currDist + graph.weight(e);
+                if(this.seenF[to] != epoch) {
+                    this.seenF[to] = epoch;
+                } else if(newDist >= this.distF[to]) {
+                    continue;
+                }
+                this.distF[to] = newDist;
+                this.parentF[to] = curr;
+                this.heapF.insertOrDecrease(to, (long) newDist
+                        + this.heuristic.estimate(to, target));
+            }
+        }
+        return Vertex.UNREACHABLE;
+    }
+
+    /**
+     * Starts a new query. Stamps are only reset when the epoch counter
+     * wraps around, once every 2^31 queries.
+     */
+    private int nextEpoch() {
+        if(++this.epoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.seenF, 0);
+            Arrays.fill(this.settledF, 0);
+            if(this.seenB != null) {
+                Arrays.fill(this.seenB, 0);
+                Arrays.fill(this.settledB, 0);
+            }
+            this.epoch = 1;
+        }
+        return this.epoch;
+    }
+}
@@ -11,50 +11,194 @@ import java.util.*;
  * MST is unique ONLY if the weights are unique(no repeated weight values).
  * If Graph used is DIRECTED, Tree result will be SPANNING but not MINIMUM
  * (See Edmond's Algorithm)
+ *
+ * This is the eager version of Prim's algorithm: instead of a heap of every
+ * edge seen so far, each vertex outside the tree keeps only the lightest
+ * edge connecting it to the tree, so memory is O(V) whatever the number of
+ * edges. Two ways of finding the next vertex are used:
+ * - Sparse graphs: the vertices are kept in an IndexedHeap by the weight of
+ * their lightest edge, which is decreased in place when a lighter edge is
+ * found. O(ElgV) time.
+ * - Dense graphs: the next vertex is found by scanning an array of the
+ * lightest edge of every vertex. O(V^2 + E) time, which is less than the
+ * heap when ElgV > V^2, e.g. on complete graphs.
+ * The mode is chosen from the number of edges, or can be forced.
  */
 public class PrimMST {
 
-    private DirectedGraph graph;
-    private HashSet<Integer> unvisited; // HashSet that tracks if there are
-    // still any unconnected nodes
-    private ArrayList<Vertex> vertexList;
-    private PriorityQueue<Edge> minHeap; // Min heap keeps track of all
-    // possible edges at any point in time
+    private static final long NO_EDGE = Long.MAX_VALUE; // key of a vertex not
+    // connected to the tree yet
+
     private int size;
+    private CompactGraph compact; // null for graphs built as a
+    // DirectedGraph, which are frozen on every call
+    private DirectedGraph graph;
+    private Boolean dense; // forced mode, null to choose from edge density
+    private GraphMetrics metrics; // told the heap high water mark of each
+    // run when set
 
     PrimMST(DirectedGraph graph, int size) {
         this.size = size;
-        this.unvisited = new HashSet<Integer>();
         this.graph = graph;
-        this.minHeap = new PriorityQueue<>();
-        for (int i = 0; i < size; i++) {
-            this.unvisited.add(i);
-        }
     }
 
+    PrimMST(CompactGraph graph) {
+        this.size = graph.numVertices();
+        this.compact = graph;
+    }
+
+    /**
+     * @param dense true to always scan an array for the next vertex, false
+     * to always use the heap.
+     */
+    PrimMST(CompactGraph graph, boolean dense) {
+        this(graph);
+        this.dense = dense;
+    }
+
+    /**
+     * Method that sets the listener told about the work of every run, or
+     * null to stop reporting. Runs in dense mode use no heap and report
+     * nothing.
+     */
+    public void setMetrics(GraphMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Method that finds the MST containing startVert.
+     * @return the MST as a DirectedGraph, with each tree edge added in both
+     * directions.
+     */
     public DirectedGraph findMST(int startVert) {
+        SpanningTree tree = findSpanningTree(startVert);
         DirectedGraph result = new DirectedGraph(this.size); // MST to be
         // returned
-        for(Edge e : this.graph._adjList.get(startVert))
-            this.minHeap.offer(e);
-        this.unvisited.remove(startVert);
-
-        while(!unvisited.isEmpty()) {
-            Edge minEdge = minHeap.poll();
-            if(!this.unvisited.contains(minEdge.getTo())) // if connecting
-                // vertex already in graph, skip because will create cycle otherwise
-                continue;
-
-            this.unvisited.remove(minEdge.getTo());
-            result.addEdge(minEdge.getFrom(), minEdge.getTo(), minEdge
-                    .getWeight());
-            result.addEdge(minEdge.getTo(), minEdge.getFrom(), minEdge
-                    .getWeight());
-
-            for(Edge e : this.graph._adjList.get(minEdge.getTo())) // For each
-                // edge in the connecting vertex, add to minHeap
-                this.minHeap.offer(e);
+        for(int i = 0; i < tree.size(); i++) {
+            result.addEdge(tree.getFrom(i), tree.getTo(i), tree.getWeight(i));
+            result.addEdge(tree.getTo(i), tree.getFrom(i), tree.getWeight(i));
         }
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Method that finds the MST of the vertices reachable from startVert.
+     * If the graph is not connected, the other vertices are left out.
+     * @return the edges of the tree and their total weight.
+     */
+    public SpanningTree findSpanningTree(int startVert) {
+        CompactGraph compact = this.compact != null ? this.compact
+                : this.graph.freeze(); // so edges added since the last call
+                // are seen
+        long[] bestEdge = new long[this.size]; // lightest edge from the
+        // tree to each vertex
+        int[] bestFrom = new int[this.size]; // tree end of that edge
+        boolean[] inTree = new boolean[this.size];
+        int maxSize = Math.max(this.size - 1, 0);
+        int[] treeFrom = new int[maxSize];
+        int[] treeTo = new int[maxSize];
+        int[] treeWeight = new int[maxSize];
+        int treeSize;
+        if(isDense(compact))
+            treeSize = denseScan(compact, startVert, bestEdge, bestFrom,
+                    inTree, treeFrom, treeTo, treeWeight);
+        else
+            treeSize = heapScan(compact, startVert, bestEdge, bestFrom,
+                    inTree, treeFrom, treeTo, treeWeight);
+        return new SpanningTree(this.size, treeFrom, treeTo, treeWeight,
+                treeSize);
+    }
+
+    /**
+     * @return true if the array scan is expected to be faster than the heap,
+     * i.e. ElgV > V^2.
+     */
+    private boolean isDense(CompactGraph compact) {
+        if(this.dense != null)
+            return this.dense;
+        double logV = Math.log(Math.max(this.size, 2)) / Math.log(2);
+        return compact.numEdges() * logV > (double) this.size * this.size;
+    }
+
+    private int heapScan(CompactGraph compact, int startVert,
+                         long[] bestEdge, int[] bestFrom, boolean[] inTree,
+                         int[] treeFrom, int[] treeTo, int[] treeWeight) {
+        IndexedHeap minHeap = new IndexedHeap(this.size); // vertices next to
+        // the tree, keyed by the weight of their lightest edge to it
+        int treeSize = 0;
+        int highWater = 0; // counted for metrics
+        inTree[startVert] = true;
+        int curr = startVert;
+        while(true) {
+            for(long e = compact.firstEdge(curr), end = compact.lastEdge(curr);
+                e < end; e++) {
+                int to = compact.target(e);
+                if(inTree[to])
+                    continue;
+                if(minHeap.insertOrDecrease(to, compact.weight(e))) {
+                    bestEdge[to] = e;
+                    bestFrom[to] = curr;
+                }
+            }
+            highWater = Math.max(highWater, minHeap.size());
+            if(minHeap.isEmpty()) {
+                if(this.metrics != null)
+                    this.metrics.heapHighWater(highWater);
+                return treeSize;
+            }
+
+            curr = minHeap.poll();
+            inTree[curr] = true;
+            treeFrom[treeSize] = bestFrom[curr];
+            treeTo[treeSize] = curr;
+            treeWeight[treeSize] = compact.weight(bestEdge[curr]);
+            treeSize++;
+        }
+    }
+
+    private int denseScan(CompactGraph compact, int startVert,
+                          long[] bestEdge, int[] bestFrom, boolean[] inTree,
+                          int[] treeFrom, int[] treeTo, int[] treeWeight) {
+        long[] key = new long[this.size]; // weight of the lightest edge to
+        // each vertex, NO_EDGE if none
+        Arrays.fill(key, NO_EDGE);
+        int[] outside = new int[this.size]; // vertices not in the tree,
+        // swapped out as they join so each scan only reads these
+        int numOutside = 0;
+        for(int v = 0; v < this.size; v++)
+            if(v != startVert)
+                outside[numOutside++] = v;
+        int treeSize = 0;
+        inTree[startVert] = true;
+        int curr = startVert;
+        while(true) {
+            for(long e = compact.firstEdge(curr), end = compact.lastEdge(curr);
+                e < end; e++) {
+                int to = compact.target(e);
+                if(!inTree[to] && compact.weight(e) < key[to]) {
+                    key[to] = compact.weight(e);
+                    bestEdge[to] = e;
+                    bestFrom[to] = curr;
+                }
+            }
+
+            int minIdx = -1;
+            long minKey = NO_EDGE;
+            for(int i = 0; i < numOutside; i++)
+                if(key[outside[i]] < minKey) {
+                    minKey = key[outside[i]];
+                    minIdx = i;
+                }
+            if(minIdx < 0) // rest of the graph is not reachable
+                return treeSize;
+
+            curr = outside[minIdx];
+            outside[minIdx] = outside[--numOutside];
+            inTree[curr] = true;
+            treeFrom[treeSize] = bestFrom[curr];
+            treeTo[treeSize] = curr;
+            treeWeight[treeSize] = (int) minKey;
+            treeSize++;
+        }
+    }
+}
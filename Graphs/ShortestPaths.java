@@ -0,0 +1,85 @@
+import java.util.*;
+
+/**
+ * Compact result of a single-source shortest path run: the distance and the
+ * parent of every vertex in the shortest path tree, as 2 int arrays. Paths
+ * and the tree itself are only built when asked for.
+ * The weight of the tree edge into v is dist[v] - dist[parent[v]], so it is
+ * not stored.
+ */
+public class ShortestPaths {
+
+    static final int NO_PARENT = -1; // parent of the source and of
+    // unreachable vertices
+
+    private final int source;
+    private final int[] dist;
+    private final int[] parent;
+
+    ShortestPaths(int source, int[] dist, int[] parent) {
+        this.source = source;
+        this.dist = dist;
+        this.parent = parent;
+    }
+
+    public int getSource() { return this.source; }
+    public int numVertices() { return this.dist.length; }
+
+    /**
+     * @return the shortest distance from the source, Vertex.UNREACHABLE if
+     * there is no path.
+     */
+    public int distance(int vertex) { return this.dist[vertex]; }
+
+    public boolean isReachable(int vertex) {
+        return this.dist[vertex] != Vertex.UNREACHABLE;
+    }
+
+    /**
+     * @return the vertex before vertex on its shortest path, -1 for the
+     * source and unreachable vertices.
+     */
+    public int parent(int vertex) { return this.parent[vertex]; }
+
+    /**
+     * @return the distance of every vertex. The array is shared, not copied.
+     */
+    public int[] getDistances() { return this.dist; }
+
+    /**
+     * @return the parent of every vertex. The array is shared, not copied.
+     */
+    public int[] getParents() { return this.parent; }
+
+    /**
+     * Method that builds the shortest path to a vertex by following parents
+     * back to the source.
+     * @return the vertices of the path, from the source to target, or an
+     * empty array if target is unreachable.
+     */
+    public int[] path(int target) {
+        if(!isReachable(target))
+            return new int[0];
+        int length = 1;
+        for(int v = target; v != this.source; v = this.parent[v])
+            length++;
+        int[] result = new int[length];
+        for(int v = target, i = length - 1; i >= 0; v = this.parent[v], i--)
+            result[i] = v;
+        return result;
+    }
+
+    /**
+     * Method that builds the shortest path tree, with an edge from the parent
+     * of every reachable vertex to the vertex.
+     * @return the tree as a DirectedGraph.
+     */
+    public DirectedGraph toDirectedGraph() {
+        DirectedGraph result = new DirectedGraph(numVertices());
+        for(int v = 0; v < numVertices(); v++)
+            if(this.parent[v] != NO_PARENT)
+                result.addEdge(this.parent[v], v,
+                        this.dist[v] - this.dist[this.parent[v]]);
+        return result;
+    }
+}
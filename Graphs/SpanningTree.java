@@ -0,0 +1,52 @@
+/**
+ * Compact result of a minimum spanning tree algorithm: the edges of the tree
+ * (or forest, if the graph is not connected) as 3 parallel arrays, plus
+ * their total weight.
+ */
+public class SpanningTree {
+
+    private final int numVertices;
+    private final int[] from;
+    private final int[] to;
+    private final int[] weight;
+    private final int size; // number of edges in the tree
+    private final long totalWeight;
+
+    SpanningTree(int numVertices, int[] from, int[] to, int[] weight,
+                 int size) {
+        this.numVertices = numVertices;
+        this.from = from;
+        this.to = to;
+        this.weight = weight;
+        this.size = size;
+        long total = 0;
+        for(int i = 0; i < size; i++)
+            total += weight[i];
+        this.totalWeight = total;
+    }
+
+    public int numVertices() { return this.numVertices; }
+
+    /**
+     * @return the number of edges in the tree, V - 1 if the graph is
+     * connected.
+     */
+    public int size() { return this.size; }
+    public boolean isSpanning() { return this.size == this.numVertices - 1; }
+    public long getTotalWeight() { return this.totalWeight; }
+    public int getFrom(int i) { return this.from[i]; }
+    public int getTo(int i) { return this.to[i]; }
+    public int getWeight(int i) { return this.weight[i]; }
+
+    /**
+     * Method that converts the tree into a DirectedGraph, with each tree
+     * edge added in its from->to direction.
+     * @return the tree as a DirectedGraph.
+     */
+    public DirectedGraph toDirectedGraph() {
+        DirectedGraph result = new DirectedGraph(this.numVertices);
+        for(int i = 0; i < this.size; i++)
+            result.addEdge(this.from[i], this.to[i], this.weight[i]);
+        return result;
+    }
+}
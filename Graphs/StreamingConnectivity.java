@@ -0,0 +1,312 @@
+import java.util.*;
+
+/**
+ * Incremental connected components of an undirected graph whose edges
+ * arrive as an unbounded stream.
+ * Vertex ids do not need to be known up front: the id space grows to the
+ * largest id seen, and every id below it that has no edge yet is a
+ * component of its own. Each edge is merged into a UnionFind as it arrives,
+ * and the number of components and the sizes of all components with more
+ * than one vertex are kept up to date, so queries never recompute anything.
+ * Edges can only be added, never removed.
+ *
+ * Nothing is allocated per edge once the arrays have grown to fit the ids:
+ * - Components with more than one vertex are kept in a binary max-heap of
+ * (size << 32 | root) longs, with the position of each root in the heap, so
+ * a merge removes the smaller root and moves the larger one up in
+ * O(log n). The k largest are read off the heap with a best-first walk of
+ * its top, in O(k log k), without changing it.
+ * - Isolated vertices are kept in a doubly linked list in order of id. New
+ * ids go at the end, and a merge unlinks them in O(1), so filling a query
+ * with isolated vertices takes one step per vertex used.
+ */
+public class StreamingConnectivity {
+
+    private static final int NONE = -1; // end of the list of isolated
+    // vertices
+
+    private final UnionFind components;
+    private int numComponents;
+    private long[] heap = new long[16]; // (size << 32 | root) of every
+    // component with at least 2 vertices, as a max-heap
+    private int heapSize;
+    private int[] heapPosition = new int[16]; // 1 + index in heap of each
+    // root, 0 if it is not in the heap
+    private int[] nextIsolated = new int[16]; // links of the list of
+    // isolated vertices
+    private int[] prevIsolated = new int[16];
+    private int firstIsolated = NONE;
+    private int lastIsolated = NONE;
+
+    StreamingConnectivity() {
+        this.components = new UnionFind(0);
+    }
+
+    /**
+     * @return the number of vertex ids seen so far, one more than the
+     * largest id.
+     */
+    public int numVertices() { return this.components.numVertices(); }
+    public int numComponents() { return this.numComponents; }
+
+    /**
+     * Method that adds an isolated vertex, and every smaller id not seen yet.
+     */
+    public void addVertex(int vertex) {
+        checkVertex(vertex);
+        ensureVertex(vertex);
+    }
+
+    /**
+     * Method that adds an undirected edge between 2 vertices.
+     * @return true if the edge merged 2 components.
+     */
+    public boolean addEdge(int from, int to) {
+        checkVertex(from);
+        checkVertex(to);
+        ensureVertex(Math.max(from, to));
+        return merge(from, to);
+    }
+
+    /**
+     * Method that adds a batch of undirected edges, from[i] to to[i] for
+     * i below count. The id space grows once for the whole batch.
+     * @return the number of merges the batch caused.
+     */
+    public int addEdges(int[] from, int[] to, int count) {
+        int maxId = -1;
+        for(int i = 0; i < count; i++) {
+            checkVertex(from[i]);
+            checkVertex(to[i]);
+            maxId = Math.max(maxId, Math.max(from[i], to[i]));
+        }
+        ensureVertex(maxId);
+        int merges = 0;
+        for(int i = 0; i < count; i++)
+            if(merge(from[i], to[i]))
+                merges++;
+        return merges;
+    }
+
+    public boolean connected(int first, int second) {
+        checkVertex(first);
+        checkVertex(second);
+        if(first == second)
+            return true;
+        if(Math.max(first, second) >= numVertices())
+            return false;
+        return this.components.findRoot(first)
+                == this.components.findRoot(second);
+    }
+
+    /**
+     * @return the representative vertex of the component of vertex. It may
+     * change when the component is merged with another one.
+     */
+    public int componentOf(int vertex) {
+        checkVertex(vertex);
+        return vertex >= numVertices() ? vertex
+                : this.components.findRoot(vertex);
+    }
+
+    public int componentSize(int vertex) {
+        checkVertex(vertex);
+        return vertex >= numVertices() ? 1 : this.components.sizeOf(vertex);
+    }
+
+    /**
+     * Method that finds the k largest components, largest first. Ties are
+     * broken by the larger representative. If there are fewer than k
+     * components with more than one vertex, the rest are filled with
+     * isolated vertices in order of id.
+     * @param k Number of components wanted.
+     * @return representatives of up to k components.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    public int[] largestComponents(int k) {
+        if(k < 0)
+            throw new IllegalArgumentException("Negative k: " + k);
+        int[] result = new int[Math.min(k, this.numComponents)];
+        int count = 0;
+        int fromHeap = Math.min(result.length, this.heapSize);
+        if(fromHeap > 0) {
+            // Best-first walk of the heap: the next largest is always the
+            // largest child of one already taken, so candidates holds the
+            // heap indices of those children, as a max-heap itself
+            int[] candidates = new int[fromHeap + 1];
+            int numCandidates = 1; // candidates[0] = 0, the root
+            while(count < fromHeap) {
+                int best = candidates[0];
+                result[count++] = (int) this.heap[best];
+                candidates[0] = candidates[--numCandidates];
+                siftDownCandidate(candidates, numCandidates);
+                for(int child = 2 * best + 1; child <= 2 * best + 2
+                        && child < this.heapSize; child++) {
+                    candidates[numCandidates] = child;
+                    siftUpCandidate(candidates, numCandidates++);
+                }
+            }
+        }
+        for(int v = this.firstIsolated; count < result.length;
+            v = this.nextIsolated[v])
+            result[count++] = v;
+        return result;
+    }
+
+    private static void checkVertex(int vertex) {
+        if(vertex < 0)
+            throw new IllegalArgumentException("Negative vertex id: "
+                    + vertex);
+    }
+
+    private void ensureVertex(int vertex) {
+        int numVertices = numVertices();
+        int added = vertex + 1 - numVertices;
+        if(added <= 0)
+            return;
+        this.components.grow(vertex + 1);
+        this.numComponents += added;
+        if(vertex >= this.nextIsolated.length) {
+            int capacity = Math.max(vertex + 1, this.nextIsolated.length * 2);
+            this.heapPosition = Arrays.copyOf(this.heapPosition, capacity);
+            this.nextIsolated = Arrays.copyOf(this.nextIsolated, capacity);
+            this.prevIsolated = Arrays.copyOf(this.prevIsolated, capacity);
+        }
+        for(int v = numVertices; v <= vertex; v++) { // new ids are larger
+            // than every id in the list, so they go at the end
+            this.prevIsolated[v] = this.lastIsolated;
+            this.nextIsolated[v] = NONE;
+            if(this.lastIsolated == NONE)
+                this.firstIsolated = v;
+            else
+                this.nextIsolated[this.lastIsolated] = v;
+            this.lastIsolated = v;
+        }
+    }
+
+    private boolean merge(int from, int to) {
+        int first = this.components.findRoot(from);
+        int second = this.components.findRoot(to);
+        if(first == second)
+            return false;
+        int firstSize = this.components.sizeOf(first);
+        int secondSize = this.components.sizeOf(second);
+        this.components.union(first, second);
+        int root = this.components.findRoot(first);
+        int merged = root == first ? second : first;
+        if(firstSize == 1)
+            unlinkIsolated(first);
+        if(secondSize == 1)
+            unlinkIsolated(second);
+        if(this.heapPosition[merged] != 0)
+            removeFromHeap(merged);
+        long key = ((long) (firstSize + secondSize) << 32) | root;
+        if(this.heapPosition[root] != 0) { // the key only grows
+            int i = this.heapPosition[root] - 1;
+            this.heap[i] = key;
+            siftUp(i);
+        } else {
+            if(this.heapSize == this.heap.length)
+                this.heap = Arrays.copyOf(this.heap, this.heapSize * 2);
+            this.heap[this.heapSize] = key;
+            this.heapPosition[root] = this.heapSize + 1;
+            siftUp(this.heapSize++);
+        }
+        this.numComponents--;
+        return true;
+    }
+
+    private void unlinkIsolated(int vertex) {
+        int prev = this.prevIsolated[vertex];
+        int next = this.nextIsolated[vertex];
+        if(prev == NONE)
+            this.firstIsolated = next;
+        else
+            this.nextIsolated[prev] = next;
+        if(next == NONE)
+            this.lastIsolated = prev;
+        else
+            this.prevIsolated[next] = prev;
+    }
+
+    private void removeFromHeap(int root) {
+        int i = this.heapPosition[root] - 1;
+        this.heapPosition[root] = 0;
+        long last = this.heap[--this.heapSize];
+        if(i == this.heapSize)
+            return;
+        this.heap[i] = last;
+        this.heapPosition[(int) last] = i + 1;
+        siftUp(i);
+        siftDown(this.heapPosition[(int) last] - 1);
+    }
+
+    private void siftUp(int i) {
+        long key = this.heap[i];
+        while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(this.heap[parent] >= key)
+                break;
+            place(i, this.heap[parent]);
+            i = parent;
+        }
+        place(i, key);
+    }
+
+    private void siftDown(int i) {
+        long key = this.heap[i];
+        while(true) {
+            int child = 2 * i + 1;
+            if(child >= this.heapSize)
+                break;
+            if(child + 1 < this.heapSize
+                    && this.heap[child + 1] > this.heap[child])
+                child++;
+            if(this.heap[child] <= key)
+                break;
+            place(i, this.heap[child]);
+            i = child;
+        }
+        place(i, key);
+    }
+
+    // Puts key at index i of the heap and records where its root is
+    private void place(int i, long key) {
+        this.heap[i] = key;
+        this.heapPosition[(int) key] = i + 1;
+    }
+
+    // Sifts candidates[i] up, comparing the heap keys they point to
+    private void siftUpCandidate(int[] candidates, int i) {
+        int index = candidates[i];
+        while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(this.heap[candidates[parent]] >= this.heap[index])
+                break;
+            candidates[i] = candidates[parent];
+            i = parent;
+        }
+        candidates[i] = index;
+    }
+
+    // Sifts candidates[0] down among the first count candidates
+    private void siftDownCandidate(int[] candidates, int count) {
+        if(count == 0)
+            return;
+        int index = candidates[0];
+        int i = 0;
+        while(true) {
+            int child = 2 * i + 1;
+            if(child >= count)
+                break;
+            if(child + 1 < count && this.heap[candidates[child + 1]]
+                    > this.heap[candidates[child]])
+                child++;
+            if(this.heap[candidates[child]] <= this.heap[index])
+                break;
+            candidates[i] = candidates[child];
+            i = child;
+        }
+        candidates[i] = index;
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GraphMetrics that adds everything up in striped counters (LongAdder), so
+ * threads reporting at the same time update different cells instead of
+ * contending on one. Reading a total sums the cells.
+ */
+public class StripedGraphMetrics implements GraphMetrics {
+
+    private final LongAdder shortestPathRuns = new LongAdder();
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder improved = new LongAdder();
+    private final LongAdder stalePops = new LongAdder();
+    private final LongAccumulator heapHighWater = new LongAccumulator(
+            Math::max, 0);
+    private final LongAdder findRootCalls = new LongAdder();
+    private final LongAdder findRootSteps = new LongAdder();
+    private final LongAccumulator longestFindRoot = new LongAccumulator(
+            Math::max, 0);
+
+    public void shortestPathRun(long scanned, long improved, long stalePops) {
+        this.shortestPathRuns.increment();
+        this.scanned.add(scanned);
+        this.improved.add(improved);
+        this.stalePops.add(stalePops);
+    }
+
+    public void heapHighWater(int highWater) {
+        this.heapHighWater.accumulate(highWater);
+    }
+
+    public void findRootPath(int length) {
+        this.findRootCalls.increment();
+        this.findRootSteps.add(length);
+        this.longestFindRoot.accumulate(length);
+    }
+
+    public long getShortestPathRuns() { return this.shortestPathRuns.sum(); }
+    public long getScannedEdges() { return this.scanned.sum(); }
+    public long getImprovedEdges() { return this.improved.sum(); }
+    public long getStalePops() { return this.stalePops.sum(); }
+    public long getHeapHighWater() { return this.heapHighWater.get(); }
+    public long getFindRootCalls() { return this.findRootCalls.sum(); }
+    public long getFindRootSteps() { return this.findRootSteps.sum(); }
+    public long getLongestFindRoot() { return this.longestFindRoot.get(); }
+
+    /**
+     * Method that sets every counter back to 0. Reports made during the
+     * reset may be lost.
+     */
+    public void reset() {
+        this.shortestPathRuns.reset();
+        this.scanned.reset();
+        this.improved.reset();
+        this.stalePops.reset();
+        this.heapHighWater.reset();
+        this.findRootCalls.reset();
+        this.findRootSteps.reset();
+        this.longestFindRoot.reset();
+    }
+
+    public String toString() {
+        return "[shortest path runs: " + getShortestPathRuns()
+                + ", scanned edges: " + getScannedEdges()
+                + ", improved edges: " + getImprovedEdges()
+                + ", stale pops: " + getStalePops()
+                + ", heap high water: " + getHeapHighWater()
+                + ", findRoot calls: " + getFindRootCalls()
+                + ", findRoot steps: " + getFindRootSteps()
+                + ", longest findRoot: " + getLongestFindRoot() + "]";
+    }
+}
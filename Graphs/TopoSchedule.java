@@ -0,0 +1,46 @@
+/**
+ * Result of a level-synchronous topological sort: the vertices in
+ * topological order, grouped by level. The level of a vertex is the length
+ * of the longest path reaching it, the earliest stage it can run at if every
+ * edge is a dependency. All vertices of a level are independent of each
+ * other, and are listed together in order of id.
+ */
+public class TopoSchedule {
+
+    private final int[] order; // vertices, level by level
+    private final int[] level; // level of each vertex
+    private final int[] levelStart; // position in order of the first vertex
+    // of each level, followed by the number of vertices
+
+    TopoSchedule(int[] order, int[] level, int[] levelStart) {
+        this.order = order;
+        this.level = level;
+        this.levelStart = levelStart;
+    }
+
+    public int numVertices() { return this.order.length; }
+    public int numLevels() { return this.levelStart.length - 1; }
+
+    /**
+     * @return the vertices in topological order. The array is shared, not
+     * copied.
+     */
+    public int[] getOrder() { return this.order; }
+
+    /**
+     * @return the level of every vertex. The array is shared, not copied.
+     */
+    public int[] getLevels() { return this.level; }
+
+    public int getLevel(int vertex) { return this.level[vertex]; }
+
+    /**
+     * @return position in getOrder() of the first vertex of a level.
+     */
+    public int levelStart(int level) { return this.levelStart[level]; }
+
+    /**
+     * @return position in getOrder() just after the last vertex of a level.
+     */
+    public int levelEnd(int level) { return this.levelStart[level + 1]; }
+}
@@ -1,4 +1,7 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
 
 /**
  * Performs Topological sort on a directed graph.
@@ -6,16 +9,31 @@ import java.util.*;
  * topological order
  * If there are non-unique weights, Topo Sort may not be unique.
  * If graph contains a cycle, Topological Sort will not be correct.
+ * When constructed with a CompactGraph, in-degrees are computed from the
+ * graph itself and setEdge must not be called.
+ *
+ * schedule() is a parallel, level-synchronous Kahn's algorithm on the
+ * CompactGraph. All vertices of in-degree 0 form the first level. The edges
+ * out of a level are processed in parallel, decrementing atomic in-degree
+ * counters, and the vertices that reach 0 form the next level. Unlike
+ * topoSort, it reports a cycle instead of returning a partial order.
  */
 public class TopoSort {
 
+    private static final int CHUNK_SIZE = 256; // vertices of a level
+    // processed per task
+    private static final int SEQUENTIAL_THRESHOLD = 1024; // smaller levels
+    // are processed on the calling thread
+
     private DirectedGraph graph; // Graph to perform Topo Sort on
+    private CompactGraph compact; // used instead of graph when set
     private HashSet<Integer> unvisited; // HashSet that contains the
     // unprocessed vertices
     private Queue<Integer> queue; // Queue that contains the order of which
     // vertices that enqueued in topological order
     private int size;
     private int[] inDeg;
+    private ForkJoinPool pool; // used by schedule
 
     TopoSort(int size, DirectedGraph graph) {
         this.size = size;
@@ -28,6 +46,20 @@ public class TopoSort {
         }
     }
 
+    TopoSort(CompactGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    TopoSort(CompactGraph graph, ForkJoinPool pool) {
+        this.pool = pool;
+        this.size = graph.numVertices();
+        this.compact = graph;
+        this.queue = new LinkedList<Integer>();
+        this.inDeg = new int[size];
+        for(long e = 0, end = graph.numEdges(); e < end; e++)
+            this.inDeg[graph.target(e)]++;
+    }
+
     // Method that increments the in degree upon adding an edge
     public void setEdge(int from, int to) {
         this.inDeg[to]++;
@@ -38,6 +70,8 @@ public class TopoSort {
      * @return a Queue containing the topological order of vertices.
      */
     public Queue<Integer> topoSort() {
+        if(this.compact != null)
+            return compactTopoSort();
         Queue<Integer> result = new LinkedList<Integer>(); // Queue that
         // stores the result of the topological sort
         // Enqueue all vertices with In-Degree 0
@@ -66,4 +100,120 @@ public class TopoSort {
         }
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Kahn's algorithm on the CompactGraph. Each vertex reaches in-degree 0
+     * exactly once, so no unvisited set is needed.
+     * @return a Queue containing the topological order of vertices.
+     */
+    private Queue<Integer> compactTopoSort() {
+        Queue<Integer> result = new LinkedList<Integer>();
+        for(int i = 0; i < size; i++)
+            if(inDeg[i] == 0)
+                this.queue.offer(i);
+
+        while(!queue.isEmpty()) {
+            int curr = this.queue.poll();
+            for(long e = compact.firstEdge(curr), end = compact.lastEdge(curr);
+                e < end; e++) {
+                int to = compact.target(e);
+                if(--this.inDeg[to] == 0)
+                    this.queue.offer(to);
+            }
+            result.offer(curr);
+        }
+        return result;
+    }
+
+    /**
+     * Method that performs a parallel level-synchronous topo sort on the
+     * CompactGraph. In-degrees are recomputed, so it can be called more than
+     * once and after topoSort.
+     * @return the topological order of vertices and the level of each.
+     * @throws IllegalArgumentException if the graph contains a cycle.
+     */
+    public TopoSchedule schedule() {
+        if(this.compact == null)
+            throw new IllegalStateException("Not constructed with a "
+                    + "CompactGraph");
+        CompactGraph graph = this.compact;
+        AtomicIntegerArray remaining = new AtomicIntegerArray(size); //
+        // in-degree from vertices not yet ordered
+        this.pool.submit(() -> IntStream.range(0, size).parallel()
+                .forEach(v -> {
+                    for(long e = graph.firstEdge(v), end = graph.lastEdge(v);
+                        e < end; e++)
+                        remaining.incrementAndGet(graph.target(e));
+                })).join();
+
+        int[] order = new int[size];
+        int[] level = new int[size];
+        IntList levelStart = new IntList();
+        int end = 0;
+        for(int i = 0; i < size; i++)
+            if(remaining.get(i) == 0)
+                order[end++] = i;
+        IntList[] chunkOutput = new IntList[this.pool.getParallelism() * 4];
+        for(int i = 0; i < chunkOutput.length; i++)
+            chunkOutput[i] = new IntList();
+
+        int start = 0;
+        while(start < end) {
+            int depth = levelStart.size();
+            levelStart.add(start);
+            int from = start;
+            int to = end;
+            for(int i = from; i < to; i++)
+                level[order[i]] = depth;
+
+            if(to - from < SEQUENTIAL_THRESHOLD) {
+                chunkOutput[0].clear();
+                releaseRange(order, from, to, remaining, chunkOutput[0]);
+                end = appendAll(order, end, chunkOutput, 1);
+            }
+            else {
+                int chunks = Math.min(chunkOutput.length,
+                        (to - from + CHUNK_SIZE - 1) / CHUNK_SIZE);
+                int perChunk = (to - from + chunks - 1) / chunks;
+                this.pool.submit(() -> IntStream.range(0, chunks).parallel()
+                        .forEach(c -> {
+                            chunkOutput[c].clear();
+                            releaseRange(order, from + c * perChunk,
+                                    Math.min(to, from + (c + 1) * perChunk),
+                                    remaining, chunkOutput[c]);
+                        })).join();
+                end = appendAll(order, end, chunkOutput, chunks);
+            }
+            Arrays.parallelSort(order, to, end); // same order on every run
+            start = to;
+        }
+        if(end < size)
+            throw new IllegalArgumentException("Graph contains a cycle");
+        levelStart.add(end);
+        return new TopoSchedule(order, level, levelStart.toArray());
+    }
+
+    // Decrements the in-degree of the targets of order[from] to
+    // order[to - 1], collecting the ones that reach 0
+    private void releaseRange(int[] order, int from, int to,
+                              AtomicIntegerArray remaining, IntList ready) {
+        for(int i = from; i < to; i++) {
+            int curr = order[i];
+            for(long e = compact.firstEdge(curr), end = compact.lastEdge(curr);
+                e < end; e++) {
+                int next = compact.target(e);
+                if(remaining.decrementAndGet(next) == 0)
+                    ready.add(next);
+            }
+        }
+    }
+
+    private static int appendAll(int[] order, int end, IntList[] lists,
+                                 int count) {
+        for(int c = 0; c < count; c++) {
+            System.arraycopy(lists[c].data, 0, order, end, lists[c].size);
+            end += lists[c].size;
+        }
+        return end;
+    }
+}
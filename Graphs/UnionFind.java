@@ -11,6 +11,12 @@ public class UnionFind {
     private DirectedGraph graph;
     private int[] size; // Size of each subtree of connected elements
     private int numVertex;
+    private GraphMetrics metrics; // told the path length of every findRoot
+    // when set
+
+    UnionFind(int numVertex) {
+        this(numVertex, null);
+    }
 
     UnionFind(int numVertex, DirectedGraph graph) {
         this.numVertex = numVertex;
@@ -19,9 +25,50 @@ public class UnionFind {
         this.graph = graph;
         for(int i = 0; i < numVertex; i++) {
             this.parent[i] = i;
+            this.size[i] = 1;
         }
     }
 
+    public int numVertices() { return this.numVertex; }
+
+    /**
+     * Method that sets the listener told about every findRoot, or null to
+     * stop reporting.
+     */
+    public void setMetrics(GraphMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Method that adds singleton elements so that there are at least
+     * numVertex elements. Capacity grows by doubling.
+     * @param numVertex New number of elements.
+     */
+    public void grow(int numVertex) {
+        if(numVertex <= this.numVertex)
+            return;
+        if(numVertex > this.parent.length) {
+            int capacity = Math.max(numVertex, this.parent.length * 2);
+            this.parent = Arrays.copyOf(this.parent, capacity);
+            this.size = Arrays.copyOf(this.size, capacity);
+        }
+        for(int i = this.numVertex; i < numVertex; i++) {
+            this.parent[i] = i;
+            this.size[i] = 1;
+        }
+        this.numVertex = numVertex;
+    }
+
+    /**
+     * Method that gets the number of elements in the component of an
+     * element.
+     * @param child
+     * @return the size of the component containing child
+     */
+    public int sizeOf(int child) {
+        return this.size[findRoot(child)];
+    }
+
     /**
      * Method that connects 2 components if they're not connected,
      * else prints error message saying that cycle is detected.
@@ -64,7 +111,7 @@ public class UnionFind {
         }
         while(this.parent[second] != second) {
             this.parent[second] = this.parent[parent[second]];
-            first = this.parent[second];
+            second = this.parent[second];
         }
 
         return (first == second);
@@ -76,9 +123,23 @@ public class UnionFind {
      * @return the root of the vertex child
      */
     public int findRoot(int child) {
+        if(this.metrics != null)
+            return countedFindRoot(child);
         while(this.parent[child] != child)
             child = this.parent[child];
 
         return child;
     }
+
+    // findRoot that reports the length of the path, kept separate so the
+    // loop above does no counting
+    private int countedFindRoot(int child) {
+        int length = 0;
+        while(this.parent[child] != child) {
+            child = this.parent[child];
+            length++;
+        }
+        this.metrics.findRootPath(length);
+        return child;
+    }
 }
\ No newline at end of file
@@ -4,11 +4,12 @@ import java.util.*;
 // Used to store SSSP result
 // Natural ordering : (1) lowest distance, then (2) smallest idx
 class Vertex implements Comparable<Vertex> {
+    static final int UNREACHABLE = 1000000000; // distance of unreached vertices
     private int _index, _dist;
     private LinkedList<Edge> _edges;
 
     public Vertex(int index) {
-        _index = index; _dist = 1000000000; // assume unreachable
+        _index = index; _dist = UNREACHABLE; // assume unreachable
         _edges = new LinkedList<Edge>();
     }
 
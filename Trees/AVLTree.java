@@ -1,10 +1,32 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * Class that simulates a balanced binary search tree that
  * applies AVL balance property
+ *
+ * Trees can also be built and combined as a whole with join: join(left, key,
+ * right) links 2 trees whose keys are on either side of key, walking down
+ * the higher one to a subtree of about the height of the other, so it takes
+ * O(|height(left) - height(right)|) time. Everything else is built on it:
+ * - split cuts a tree at a key in O(log n).
+ * - union, intersection and difference split one tree at the root of the
+ * other, combine the 2 halves of each side recursively, and join the
+ * results. Both sides run in parallel on a ForkJoinPool. O(m log(n/m + 1))
+ * work for trees of m <= n keys.
+ * These operations reuse the nodes of the trees they are given, so the
+ * input trees must not be used afterwards.
  */
 public class AVLTree {
 
+    private static final int UNION = 0; // set operations
+    private static final int INTERSECTION = 1;
+    private static final int DIFFERENCE = 2;
+    private static final int PARALLEL_HEIGHT = 12; // set operations on
+    // lower trees run on the calling thread
+
     private Node root;
+    private TreeMetrics metrics; // told about rotations and heights when set
 
     AVLTree() {
         this.root = null;
@@ -14,6 +36,14 @@ public class AVLTree {
         this.root = new Node(key);
     }
 
+    /**
+     * Method that sets the listener told about rotations and heights, or
+     * null to stop reporting.
+     */
+    public void setMetrics(TreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Method that inserts a new key into the current AVL tree.
      * Duplicate keys not allowed.
@@ -22,10 +52,10 @@ public class AVLTree {
      * @return The new tree with the inserted key.
      */
     public Node insert(int key, Node node) {
-        if(node.value == key) {
-            return node;
-        } else if(node == null) {
+        if(node == null) {
             return new Node(key);
+        } else if(node.value == key) {
+            return node;
         }
 
         if(key > node.value)
@@ -36,7 +66,10 @@ public class AVLTree {
         // Update height of the current node at each level after inserton.
         node.height = 1 + Math.max(getHeight(node.left), getHeight(node.right));
 
-        return balance(node);
+        node = balance(node);
+        if(this.metrics != null)
+            this.metrics.height(node.height);
+        return node;
     }
 
     /**
@@ -46,29 +79,33 @@ public class AVLTree {
      * @return The new tree with the deleted key.
      */
     public Node delete(int key, Node node) {
-        if(node.value == key) {
-            // If no children, return null
-            if(node.left == null && node.right == null)
-                return null;
-            // If only have left child, return left subtree
-            else if(node.left != null && node.right == null)
-                return node.left;
-            // If only have right child, return right subtree
-            else if(node.left == null && node.right != null)
-                return node.right;
-            else { // Else find In-Order predecessor to replace current root
-                // to maintain BST property.
-                int newRoot = findInOrderPredecessor(node);
-                node.value = newRoot;
-            }
-        }
+        if(node == null) // key not in the tree
+            return null;
 
         if(key > node.value)
             node.right = delete(key, node.right);
-        else
+        else if(key < node.value)
             node.left = delete(key, node.left);
+        else {
+            // If at most one child, return that subtree
+            if(node.left == null)
+                return node.right;
+            else if(node.right == null)
+                return node.left;
+            // Else replace the key with the In-Order predecessor to maintain
+            // BST property, and delete the predecessor from the left subtree
+            Node predecessor = node.left;
+            while(predecessor.right != null)
+                predecessor = predecessor.right;
+            node.value = predecessor.value;
+            node.left = delete(predecessor.value, node.left);
+        }
 
-        return balance(node);
+        node.height = 1 + Math.max(getHeight(node.left), getHeight(node.right));
+        node = balance(node);
+        if(this.metrics != null)
+            this.metrics.height(node.height);
+        return node;
     }
 
     /**
@@ -78,6 +115,8 @@ public class AVLTree {
      * @return True if the value is present, False otherwise.
      */
     public boolean search(int key, Node node) {
+        if(node == null)
+            return false;
         if(node.value == key)
             return true;
 
@@ -112,7 +151,10 @@ public class AVLTree {
             newRoot = newRoot.right;
         }
 
-        parent.right = newRoot.left;
+        if(parent == node) // node.left has no right subtree
+            parent.left = newRoot.left;
+        else
+            parent.right = newRoot.left;
         parent.height = 1 + Math.max(getHeight(parent.left), getHeight(parent.right));
         balance(parent);
 
@@ -132,7 +174,10 @@ public class AVLTree {
             newRoot = newRoot.left;
         }
 
-        parent.left = newRoot.right;
+        if(parent == node) // node.right has no left subtree
+            parent.right = newRoot.right;
+        else
+            parent.left = newRoot.right;
         parent.height = 1 + Math.max(getHeight(parent.left), getHeight(parent.right));
         balance(parent);
 
@@ -152,7 +197,7 @@ public class AVLTree {
         if(leftHeight - rightHeight > 1) { // Left subtree higher than right
             int leftLeft = getHeight(node.left.left);
             int leftRight = getHeight(node.left.right);
-            if(leftLeft > leftRight) // left left case
+            if(leftLeft >= leftRight) // left left case
                 return rotateRight(node);
             else { // left right case
                 node.left = rotateLeft(node.left);
@@ -162,7 +207,7 @@ public class AVLTree {
             // than left
             int rightLeft = getHeight(node.right.left);
             int rightRight = getHeight(node.right.right);
-            if(rightRight > rightLeft) // right right case
+            if(rightRight >= rightLeft) // right right case
                 return rotateLeft(node);
             else { // right left case
                 node.right = rotateRight(node.right);
@@ -180,6 +225,8 @@ public class AVLTree {
      */
     private Node rotateLeft(Node node) {
         // Perform left rotation
+        if(this.metrics != null)
+            this.metrics.rotation();
         Node newRoot = node.right;
         node.right = newRoot.left;
         newRoot.left = node;
@@ -199,6 +246,8 @@ public class AVLTree {
      */
     private Node rotateRight(Node node) {
         // Perform right rotation
+        if(this.metrics != null)
+            this.metrics.rotation();
         Node newRoot = node.left;
         node.left = newRoot.right;
         newRoot.right = node;
@@ -211,4 +260,266 @@ public class AVLTree {
         return newRoot;
     }
 
-}
\ No newline at end of file
+    /**
+     * Method that builds a tree from keys in ascending order in O(n), the
+     * middle key of each range becoming the root of its subtree.
+     * @param sorted Keys in strictly ascending order.
+     * @return the root of the tree, null if there are no keys.
+     */
+    public Node build(int[] sorted) {
+        for(int i = 1; i < sorted.length; i++)
+            if(sorted[i - 1] >= sorted[i])
+                throw new IllegalArgumentException("Keys must be sorted and "
+                        + "distinct, found " + sorted[i - 1] + " before "
+                        + sorted[i]);
+        return build(sorted, 0, sorted.length);
+    }
+
+    private Node build(int[] sorted, int from, int to) {
+        if(from == to)
+            return null;
+        int mid = (from + to) >>> 1;
+        return link(build(sorted, from, mid), new Node(sorted[mid]),
+                build(sorted, mid + 1, to));
+    }
+
+    /**
+     * Method that joins 2 trees and a key between them.
+     * @param left Tree whose keys are all smaller than key.
+     * @param key Key to be added between the trees.
+     * @param right Tree whose keys are all larger than key.
+     * @return the root of the joined tree.
+     */
+    public Node join(Node left, int key, Node right) {
+        return join(left, new Node(key), right);
+    }
+
+    // join, reusing mid as the node of the middle key
+    private Node join(Node left, Node mid, Node right) {
+        if(getHeight(left) > getHeight(right) + 1)
+            return joinRight(left, mid, right);
+        if(getHeight(right) > getHeight(left) + 1)
+            return joinLeft(left, mid, right);
+        return link(left, mid, right);
+    }
+
+    /**
+     * left is higher than right: walks down the right spine of left to a
+     * subtree at most 1 higher than right, links it with right under mid,
+     * and rotates on the way back up where the balance property is broken.
+     */
+    private Node joinRight(Node left, Node mid, Node right) {
+        Node child = left.right;
+        if(getHeight(child) <= getHeight(right) + 1) {
+            Node joined = link(child, mid, right);
+            if(joined.height <= getHeight(left.left) + 1)
+                return link(left.left, left, joined);
+            left.right = rotateRight(joined);
+            updateHeight(left);
+            return rotateLeft(left);
+        }
+        Node joined = joinRight(child, mid, right);
+        left.right = joined;
+        updateHeight(left);
+        if(joined.height <= getHeight(left.left) + 1)
+            return left;
+        return rotateLeft(left);
+    }
+
+    // Mirror of joinRight
+    private Node joinLeft(Node left, Node mid, Node right) {
+        Node child = right.left;
+        if(getHeight(child) <= getHeight(left) + 1) {
+            Node joined = link(left, mid, child);
+            if(joined.height <= getHeight(right.right) + 1)
+                return link(joined, right, right.right);
+            right.left = rotateLeft(joined);
+            updateHeight(right);
+            return rotateRight(right);
+        }
+        Node joined = joinLeft(left, mid, child);
+        right.left = joined;
+        updateHeight(right);
+        if(joined.height <= getHeight(right.right) + 1)
+            return right;
+        return rotateRight(right);
+    }
+
+    /**
+     * Method that joins 2 trees without a key between them.
+     * @param left Tree whose keys are all smaller than those of right.
+     * @return the root of the joined tree.
+     */
+    public Node join(Node left, Node right) {
+        if(left == null)
+            return right;
+        if(right == null)
+            return left;
+        Node[] last = new Node[1];
+        Node rest = splitLast(left, last);
+        return join(rest, last[0], right);
+    }
+
+    // Takes the node of the largest key out of node into last[0]
+    private Node splitLast(Node node, Node[] last) {
+        if(node.right == null) {
+            last[0] = node;
+            return node.left;
+        }
+        Node rest = splitLast(node.right, last);
+        return join(node.left, node, rest);
+    }
+
+    /**
+     * Method that splits a tree into the keys smaller and larger than key.
+     * @param node Root of the tree to be split.
+     * @param key Key to split at.
+     * @return both trees, and whether key was in the tree.
+     */
+    public TreeSplit split(Node node, int key) {
+        Node[] halves = new Node[2];
+        boolean found = split(node, key, halves);
+        return new TreeSplit(halves[0], found, halves[1]);
+    }
+
+    // split that puts the halves in halves[0] and halves[1], so set
+    // operations can reuse one array
+    private boolean split(Node node, int key, Node[] halves) {
+        if(node == null) {
+            halves[0] = null;
+            halves[1] = null;
+            return false;
+        }
+        if(key == node.value) {
+            halves[0] = node.left;
+            halves[1] = node.right;
+            return true;
+        }
+        boolean found;
+        if(key < node.value) {
+            Node right = node.right;
+            found = split(node.left, key, halves);
+            halves[1] = join(halves[1], node, right);
+        } else {
+            Node left = node.left;
+            found = split(node.right, key, halves);
+            halves[0] = join(left, node, halves[0]);
+        }
+        return found;
+    }
+
+    /**
+     * Method that finds the keys in either tree, on the common pool.
+     * @return the root of the union.
+     */
+    public Node union(Node first, Node second) {
+        return union(first, second, ForkJoinPool.commonPool());
+    }
+
+    public Node union(Node first, Node second, ForkJoinPool pool) {
+        return pool.invoke(new SetOperation(UNION, first, second));
+    }
+
+    /**
+     * Method that finds the keys in both trees, on the common pool.
+     * @return the root of the intersection.
+     */
+    public Node intersection(Node first, Node second) {
+        return intersection(first, second, ForkJoinPool.commonPool());
+    }
+
+    public Node intersection(Node first, Node second, ForkJoinPool pool) {
+        return pool.invoke(new SetOperation(INTERSECTION, first, second));
+    }
+
+    /**
+     * Method that finds the keys of first that are not in second, on the
+     * common pool.
+     * @return the root of the difference.
+     */
+    public Node difference(Node first, Node second) {
+        return difference(first, second, ForkJoinPool.commonPool());
+    }
+
+    public Node difference(Node first, Node second, ForkJoinPool pool) {
+        return pool.invoke(new SetOperation(DIFFERENCE, first, second));
+    }
+
+    /**
+     * One set operation on 2 trees. The first tree is split at the root of
+     * the second for difference, and the second at the root of the first
+     * otherwise. The left and right halves are then combined independently,
+     * in parallel when the trees are high enough, and joined under the root
+     * if its key belongs in the result.
+     */
+    private class SetOperation extends RecursiveTask<Node> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int operation;
+        private final Node first;
+        private final Node second;
+        private final Node[] halves = new Node[2]; // reused by every split
+        // of this task
+
+        SetOperation(int operation, Node first, Node second) {
+            this.operation = operation;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        protected Node compute() {
+            return apply(this.operation, this.first, this.second);
+        }
+
+        private Node apply(int operation, Node first, Node second) {
+            if(first == null)
+                return operation == UNION ? second : null;
+            if(second == null)
+                return operation == INTERSECTION ? null : first;
+
+            // Union and intersection do not depend on the order of the
+            // trees, so the split tree is always passed first below
+            Node pivot = operation == DIFFERENCE ? second : first;
+            Node other = operation == DIFFERENCE ? first : second;
+            Node pivotLeft = pivot.left;
+            Node pivotRight = pivot.right;
+            boolean parallel = Math.max(getHeight(pivot), getHeight(other))
+                    >= PARALLEL_HEIGHT;
+            boolean found = split(other, pivot.value, this.halves);
+            Node otherLeft = this.halves[0];
+            Node otherRight = this.halves[1];
+            Node left;
+            Node right;
+            if(!parallel) {
+                left = apply(operation, otherLeft, pivotLeft);
+                right = apply(operation, otherRight, pivotRight);
+            } else {
+                SetOperation leftTask = new SetOperation(operation,
+                        otherLeft, pivotLeft);
+                leftTask.fork();
+                right = apply(operation, otherRight, pivotRight);
+                left = leftTask.join();
+            }
+
+            if(operation == UNION
+                    || (operation == INTERSECTION && found))
+                return AVLTree.this.join(left, pivot, right);
+            return AVLTree.this.join(left, right);
+        }
+    }
+
+    // Makes left and right the children of node and updates its height
+    private Node link(Node left, Node node, Node right) {
+        node.left = left;
+        node.right = right;
+        updateHeight(node);
+        return node;
+    }
+
+    private void updateHeight(Node node) {
+        node.height = 1 + Math.max(getHeight(node.left),
+                getHeight(node.right));
+    }
+}
@@ -0,0 +1,420 @@
+import java.util.*;
+
+/**
+ * AVL tree of int keys where every node also keeps the number of keys in its
+ * subtree and an aggregate of them under a LongMonoid, the sum by default.
+ * Both are updated with the height on the way back up from an insert or
+ * delete and by every rotation, so they cost O(1) per node on the path.
+ * With them, order statistics and range queries take O(log n) instead of an
+ * In-Order walk:
+ * - rank(key) is the number of keys smaller than key, adding up the sizes
+ * of the left subtrees passed on the way down.
+ * - select(k) is the k-th smallest key, going left or right by comparing k
+ * with the size of the left subtree.
+ * - countInRange and sumInRange combine the subtrees hanging off the 2 paths
+ * to lo and hi.
+ * A RangeCursor walks the keys of a range in ascending order with a stack of
+ * fixed size, allocating nothing once created.
+ * Duplicate keys not allowed.
+ */
+public class AugmentedAVLTree {
+
+    private static final int MAX_DEPTH = 64; // an AVL tree of 2^31 nodes is
+    // less than 46 levels high
+
+    private static final class TreeNode {
+        int key;
+        int height = 1;
+        int size = 1; // number of keys in the subtree
+        long aggregate; // monoid of the keys in the subtree, in order
+        TreeNode left;
+        TreeNode right;
+
+        TreeNode(int key) {
+            this.key = key;
+            this.aggregate = key;
+        }
+    }
+
+    private final LongMonoid monoid;
+    private TreeNode root;
+    private boolean changed; // whether the last insert or delete found
+    // something to do
+    private int modCount; // updates so far, checked by cursors
+    private TreeMetrics metrics; // told about rotations and heights when set
+
+    AugmentedAVLTree() {
+        this(LongMonoid.SUM);
+    }
+
+    /**
+     * @param monoid Aggregate kept for every subtree.
+     */
+    AugmentedAVLTree(LongMonoid monoid) {
+        this.monoid = monoid;
+    }
+
+    /**
+     * Method that sets the listener told about rotations and heights, or
+     * null to stop reporting.
+     */
+    public void setMetrics(TreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public int size() { return size(this.root); }
+    public boolean isEmpty() { return this.root == null; }
+
+    /**
+     * @return the height of the tree, 0 if empty.
+     */
+    public int getHeight() { return height(this.root); }
+
+    /**
+     * @return the aggregate of every key, the identity of the monoid if
+     * empty.
+     */
+    public long aggregate() { return aggregate(this.root); }
+
+    /**
+     * Method that finds if the key is in the tree.
+     * @param key Value to be searched in the tree.
+     * @return True if the value is present, False otherwise.
+     */
+    public boolean search(int key) {
+        TreeNode node = this.root;
+        while(node != null) {
+            if(key == node.key)
+                return true;
+            node = key < node.key ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Method that inserts a new key into the tree.
+     * @param key Value to be inserted
+     * @return true if the key was added, false if it was already present.
+     */
+    public boolean insert(int key) {
+        this.changed = false;
+        this.root = insert(key, this.root);
+        if(this.changed)
+            this.modCount++;
+        return this.changed;
+    }
+
+    private TreeNode insert(int key, TreeNode node) {
+        if(node == null) {
+            this.changed = true;
+            return new TreeNode(key);
+        } else if(node.key == key) {
+            return node;
+        }
+
+        if(key > node.key)
+            node.right = insert(key, node.right);
+        else
+            node.left = insert(key, node.left);
+        if(!this.changed) // nothing below changed
+            return node;
+        return rebalance(node);
+    }
+
+    /**
+     * Method that deletes a key from the tree.
+     * @param key Value to be deleted
+     * @return true if the key was removed, false if it was not present.
+     */
+    public boolean delete(int key) {
+        this.changed = false;
+        this.root = delete(key, this.root);
+        if(this.changed)
+            this.modCount++;
+        return this.changed;
+    }
+
+    private TreeNode delete(int key, TreeNode node) {
+        if(node == null) // key not in the tree
+            return null;
+
+        if(key > node.key)
+            node.right = delete(key, node.right);
+        else if(key < node.key)
+            node.left = delete(key, node.left);
+        else {
+            this.changed = true;
+            // If at most one child, return that subtree
+            if(node.left == null)
+                return node.right;
+            else if(node.right == null)
+                return node.left;
+            // Else replace the key with the In-Order predecessor, and delete
+            // the predecessor from the left subtree
+            TreeNode predecessor = node.left;
+            while(predecessor.right != null)
+                predecessor = predecessor.right;
+            node.key = predecessor.key;
+            node.left = delete(predecessor.key, node.left);
+        }
+        if(!this.changed)
+            return node;
+        return rebalance(node);
+    }
+
+    /**
+     * Method that counts the keys smaller than key, which is the position
+     * key has, or would have, in ascending order.
+     * @return the rank of key, from 0 to size().
+     */
+    public int rank(int key) {
+        int rank = 0;
+        TreeNode node = this.root;
+        while(node != null) {
+            if(key <= node.key)
+                node = node.left;
+            else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Method that finds the k-th smallest key, the inverse of rank.
+     * @param k Position of the key in ascending order, from 0.
+     * @return the key at position k.
+     */
+    public int select(int k) {
+        if(k < 0 || k >= size())
+            throw new IndexOutOfBoundsException("k: " + k + ", size: "
+                    + size());
+        TreeNode node = this.root;
+        while(true) {
+            int leftSize = size(node.left);
+            if(k == leftSize)
+                return node.key;
+            if(k < leftSize)
+                node = node.left;
+            else {
+                k -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Method that counts the keys from lo to hi, both included.
+     * @return the number of keys in the range, 0 if lo > hi.
+     */
+    public int countInRange(int lo, int hi) {
+        if(lo > hi)
+            return 0;
+        return countAtMost(hi) - rank(lo);
+    }
+
+    // Number of keys smaller than or equal to key
+    private int countAtMost(int key) {
+        int count = 0;
+        TreeNode node = this.root;
+        while(node != null) {
+            if(key < node.key)
+                node = node.left;
+            else {
+                count += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Method that aggregates the keys from lo to hi, both included, in
+     * ascending order. With the default monoid this is their sum.
+     * @return the aggregate of the keys in the range, the identity of the
+     * monoid if there are none.
+     */
+    public long sumInRange(int lo, int hi) {
+        LongMonoid monoid = this.monoid;
+        if(lo > hi)
+            return monoid.identity();
+        // Find the highest node in the range, where the paths to lo and hi
+        // part
+        TreeNode split = this.root;
+        while(split != null && (split.key < lo || split.key > hi))
+            split = split.key < lo ? split.right : split.left;
+        if(split == null)
+            return monoid.identity();
+
+        // Keys of the left subtree that are >= lo, combined from the right:
+        // every node in the range adds itself and its whole right subtree
+        long left = monoid.identity();
+        for(TreeNode node = split.left; node != null; ) {
+            if(node.key >= lo) {
+                left = monoid.combine(monoid.combine(node.key,
+                        aggregate(node.right)), left);
+                node = node.left;
+            } else
+                node = node.right;
+        }
+        // Keys of the right subtree that are <= hi, combined from the left
+        long right = monoid.identity();
+        for(TreeNode node = split.right; node != null; ) {
+            if(node.key <= hi) {
+                right = monoid.combine(right, monoid.combine(
+                        aggregate(node.left), node.key));
+                node = node.right;
+            } else
+                node = node.left;
+        }
+        return monoid.combine(monoid.combine(left, split.key), right);
+    }
+
+    /**
+     * Method that creates a cursor over the keys of this tree. A cursor can
+     * be reset to a new range any number of times without allocating.
+     */
+    public RangeCursor cursor() {
+        return new RangeCursor();
+    }
+
+    /**
+     * Iterates over the keys from lo to hi in ascending order, keeping the
+     * nodes left to visit in a stack of fixed size.
+     * <pre>
+     * RangeCursor cursor = tree.cursor();
+     * for(cursor.reset(lo, hi); cursor.hasNext(); )
+     *     use(cursor.next());
+     * </pre>
+     * Updating the tree invalidates the range: the next call to hasNext or
+     * next throws ConcurrentModificationException until reset is called.
+     */
+    public class RangeCursor {
+
+        private final TreeNode[] stack = new TreeNode[MAX_DEPTH]; // nodes
+        // whose key and right subtree are still to be visited
+        private int depth;
+        private int hi;
+        private int expectedModCount;
+
+        private RangeCursor() {
+            this.depth = 0;
+            this.expectedModCount = modCount;
+        }
+
+        /**
+         * Method that moves the cursor to the smallest key >= lo.
+         * @return this cursor.
+         */
+        public RangeCursor reset(int lo, int hi) {
+            this.depth = 0;
+            this.hi = hi;
+            this.expectedModCount = modCount;
+            if(lo > hi)
+                return this;
+            TreeNode node = root;
+            while(node != null) {
+                if(node.key >= lo) {
+                    this.stack[this.depth++] = node;
+                    node = node.left;
+                } else
+                    node = node.right;
+            }
+            return this;
+        }
+
+        /**
+         * @return true if there is another key in the range.
+         */
+        public boolean hasNext() {
+            if(modCount != this.expectedModCount)
+                throw new ConcurrentModificationException();
+            return this.depth > 0
+                    && this.stack[this.depth - 1].key <= this.hi;
+        }
+
+        /**
+         * @return the next key in the range.
+         */
+        public int next() {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            TreeNode node = this.stack[--this.depth];
+            for(TreeNode next = node.right; next != null; next = next.left)
+                this.stack[this.depth++] = next;
+            return node.key;
+        }
+    }
+
+    // Updates height, size and aggregate of node and rotates if needed
+    private TreeNode rebalance(TreeNode node) {
+        update(node);
+        node = balance(node);
+        if(this.metrics != null)
+            this.metrics.height(node.height);
+        return node;
+    }
+
+    /**
+     * Does the appropriate rotation if difference in height between the 2
+     * subtrees of node is greater than 1.
+     * @return the root of the balanced subtree.
+     */
+    private TreeNode balance(TreeNode node) {
+        int diff = height(node.left) - height(node.right);
+        if(diff > 1) { // Left subtree higher than right
+            if(height(node.left.left) < height(node.left.right)) // left
+                // right case
+                node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        } else if(diff < -1) { // Right subtree higher than left
+            if(height(node.right.right) < height(node.right.left)) // right
+                // left case
+                node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private TreeNode rotateLeft(TreeNode node) {
+        if(this.metrics != null)
+            this.metrics.rotation();
+        TreeNode newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    private TreeNode rotateRight(TreeNode node) {
+        if(this.metrics != null)
+            this.metrics.rotation();
+        TreeNode newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    private void update(TreeNode node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.size = 1 + size(node.left) + size(node.right);
+        node.aggregate = this.monoid.combine(this.monoid.combine(
+                aggregate(node.left), node.key), aggregate(node.right));
+    }
+
+    private static int height(TreeNode node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(TreeNode node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private long aggregate(TreeNode node) {
+        return node == null ? this.monoid.identity() : node.aggregate;
+    }
+}
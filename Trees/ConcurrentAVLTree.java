@@ -0,0 +1,767 @@
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of int keys in an AVL tree that many threads can use at once, after
+ * the optimistic concurrent AVL tree of Bronson, Casper, Chafi and Olukotun.
+ *
+ * Reads take no locks. Each node has a version that a rotation marks as
+ * shrinking while it moves keys out of the node's subtree, and bumps when
+ * done. A search reads the version of a node before moving to its child,
+ * and checks it again after reading the child: if it changed, the child may
+ * no longer cover the key, so the search goes back to the parent and tries
+ * again. Each step is validated while the next one is started, so a search
+ * never needs more than 2 nodes to be stable at a time.
+ * Updates lock only the nodes they change, always a parent before its child:
+ * an insert locks the parent of the new leaf, and an unlink locks the node
+ * and its parent. Heights are then fixed and rotations done bottom up, each
+ * rotation locking the nodes it moves.
+ * Deleting a key whose node has 2 children only marks the node as not
+ * present. Such routing nodes are unlinked once they have fewer than 2
+ * children.
+ * Balance is relaxed while updates are in progress, and restored once they
+ * finish.
+ */
+public class ConcurrentAVLTree {
+
+    public static final long NOT_FOUND = Long.MIN_VALUE; // result of floor
+    // and ceiling when there is no such key
+
+    private static final long RETRY = Long.MAX_VALUE; // a search has to go
+    // back to the parent
+    private static final int NOT_UPDATED = 0; // results of updates
+    private static final int UPDATED = 1;
+    private static final int RETRY_UPDATE = 2;
+
+    private static final int EXACT = 0; // kinds of search
+    private static final int FLOOR = 1;
+    private static final int CEILING = 2;
+
+    private static final long UNLINKED = 1L; // bits of a version
+    private static final long SHRINKING = 2L;
+    private static final long SHRINK_COUNT = 4L; // added at the end of each
+    // rotation
+
+    private static final int UNLINK_REQUIRED = -1; // conditions of a node,
+    // or else the height it should have
+    private static final int REBALANCE_REQUIRED = -2;
+    private static final int NOTHING_REQUIRED = -3;
+
+    private static final int SPIN_LIMIT = 100; // reads of the version before
+    // waiting on the lock of a shrinking node
+
+    private static final class TreeNode {
+        final int key;
+        volatile boolean present; // false for routing nodes
+        volatile int height;
+        volatile long version;
+        volatile TreeNode parent;
+        volatile TreeNode left;
+        volatile TreeNode right;
+
+        TreeNode(int key, boolean present, TreeNode parent) {
+            this.key = key;
+            this.present = present;
+            this.height = 1;
+            this.parent = parent;
+        }
+
+        TreeNode child(boolean left) {
+            return left ? this.left : this.right;
+        }
+
+        /**
+         * Returns once the rotation that was shrinking the node when its
+         * version was read is done.
+         */
+        void waitUntilShrinkCompleted(long version) {
+            if((version & SHRINKING) == 0)
+                return;
+            for(int i = 0; i < SPIN_LIMIT; i++)
+                if(this.version != version)
+                    return;
+            synchronized(this) {
+                // the rotation holds the lock until it is done
+            }
+        }
+    }
+
+    private final TreeNode rootHolder = new TreeNode(0, false, null); // its
+    // right child is the root. It is never rotated or unlinked, so its
+    // version stays 0.
+    private volatile TreeMetrics metrics; // told about rotations when set
+
+    ConcurrentAVLTree() {
+    }
+
+    /**
+     * Method that sets the listener told about rotations, or null to stop
+     * reporting.
+     */
+    public void setMetrics(TreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Method that finds if the key is in the tree.
+     * @param key Value to be searched in the tree.
+     * @return True if the value is present, False otherwise.
+     */
+    public boolean search(int key) {
+        return read(key, EXACT) != NOT_FOUND;
+    }
+
+    /**
+     * Method that finds the largest key no larger than key.
+     * @return a key that was present during the call, or NOT_FOUND.
+     */
+    public long floor(int key) {
+        return read(key, FLOOR);
+    }
+
+    /**
+     * Method that finds the smallest key no smaller than key.
+     * @return a key that was present during the call, or NOT_FOUND.
+     */
+    public long ceiling(int key) {
+        return read(key, CEILING);
+    }
+
+    /**
+     * Method that gives every key from lo to hi, inclusive, to action in
+     * ascending order. Each key is found with a ceiling search, so a key
+     * present for the whole scan is given exactly once, and keys added or
+     * removed during the scan may or may not be.
+     * @return the number of keys given to action.
+     */
+    public int rangeScan(int lo, int hi, IntConsumer action) {
+        int count = 0;
+        long next = lo <= hi ? ceiling(lo) : NOT_FOUND;
+        while(next != NOT_FOUND && next <= hi) {
+            action.accept((int) next);
+            count++;
+            if(next == Integer.MAX_VALUE)
+                break;
+            next = ceiling((int) next + 1);
+        }
+        return count;
+    }
+
+    /**
+     * Method that inserts a new key into the tree.
+     * @param key Value to be inserted
+     * @return true if the key was added, false if it was already present.
+     */
+    public boolean insert(int key) {
+        return update(key, true);
+    }
+
+    /**
+     * Method that deletes a key from the tree.
+     * @param key Value to be deleted
+     * @return true if the key was removed, false if it was not present.
+     */
+    public boolean delete(int key) {
+        return update(key, false);
+    }
+
+    private long read(int key, int kind) {
+        while(true) {
+            long result = descend(key, this.rootHolder, 0L, false, kind);
+            if(result != RETRY)
+                return result;
+        }
+    }
+
+    /**
+     * Searches the subtree on one side of node, which was reached with
+     * version nodeVersion.
+     * @return the key found, NOT_FOUND, or RETRY if node has changed since
+     * its version was read.
+     */
+    private long descend(int key, TreeNode node, long nodeVersion,
+                         boolean goLeft, int kind) {
+        while(true) {
+            TreeNode child = node.child(goLeft);
+            if(child == null)
+                return node.version != nodeVersion ? RETRY : NOT_FOUND;
+            long childVersion = child.version;
+            if(isShrinkingOrUnlinked(childVersion))
+                child.waitUntilShrinkCompleted(childVersion);
+            else if(child == node.child(goLeft)) { // the second read is
+                // protected by childVersion
+                if(node.version != nodeVersion)
+                    return RETRY;
+                // node led to child, and child is not changing, so node is
+                // no longer needed
+                long result = searchFrom(key, child, childVersion, kind);
+                if(result != RETRY)
+                    return result;
+            }
+            if(node.version != nodeVersion)
+                return RETRY;
+        }
+    }
+
+    private long searchFrom(int key, TreeNode node, long nodeVersion,
+                            int kind) {
+        if(key == node.key) {
+            if(node.present)
+                return key;
+            if(kind == EXACT)
+                return NOT_FOUND;
+            return descend(key, node, nodeVersion, kind == FLOOR, kind);
+        }
+        boolean goLeft = key < node.key;
+        long result = descend(key, node, nodeVersion, goLeft, kind);
+        if(result != NOT_FOUND || kind == EXACT)
+            return result;
+        if(kind == FLOOR ? goLeft : !goLeft) // node is on the wrong side of
+            // key
+            return NOT_FOUND;
+        if(node.present)
+            return node.key;
+        // node is a routing node, try the other side
+        return descend(key, node, nodeVersion, kind == FLOOR, kind);
+    }
+
+    private boolean update(int key, boolean insert) {
+        while(true) {
+            TreeNode root = this.rootHolder.right;
+            if(root == null) {
+                if(!insert)
+                    return false;
+                if(attemptInsertIntoEmpty(key))
+                    return true;
+            } else {
+                long version = root.version;
+                if(isShrinkingOrUnlinked(version))
+                    root.waitUntilShrinkCompleted(version);
+                else if(root == this.rootHolder.right) {
+                    int result = attemptUpdate(key, insert, this.rootHolder,
+                            root, version);
+                    if(result != RETRY_UPDATE)
+                        return result == UPDATED;
+                }
+            }
+        }
+    }
+
+    private boolean attemptInsertIntoEmpty(int key) {
+        synchronized(this.rootHolder) {
+            if(this.rootHolder.right != null)
+                return false;
+            this.rootHolder.right = new TreeNode(key, true, this.rootHolder);
+            this.rootHolder.height = 2;
+            return true;
+        }
+    }
+
+    /**
+     * Inserts or deletes key in the subtree of node, which was reached from
+     * parent with version nodeVersion.
+     */
+    private int attemptUpdate(int key, boolean insert, TreeNode parent,
+                              TreeNode node, long nodeVersion) {
+        if(key == node.key)
+            return attemptNodeUpdate(insert, parent, node);
+
+        boolean goLeft = key < node.key;
+        while(true) {
+            TreeNode child = node.child(goLeft);
+            if(node.version != nodeVersion)
+                return RETRY_UPDATE;
+
+            if(child == null) {
+                if(!insert) // key not in the tree
+                    return NOT_UPDATED;
+                boolean added = false;
+                TreeNode damaged = null;
+                synchronized(node) {
+                    // Once node is locked no rotation can move it
+                    if(node.version != nodeVersion)
+                        return RETRY_UPDATE;
+                    if(node.child(goLeft) == null) { // else lost a race
+                        // with another insert, try again from node
+                        TreeNode leaf = new TreeNode(key, true, node);
+                        if(goLeft)
+                            node.left = leaf;
+                        else
+                            node.right = leaf;
+                        added = true;
+                        damaged = fixHeight(node);
+                    }
+                }
+                if(added) {
+                    fixHeightAndRebalance(damaged);
+                    return UPDATED;
+                }
+            } else {
+                long childVersion = child.version;
+                if(isShrinkingOrUnlinked(childVersion))
+                    child.waitUntilShrinkCompleted(childVersion);
+                else if(child == node.child(goLeft)) {
+                    if(node.version != nodeVersion)
+                        return RETRY_UPDATE;
+                    int result = attemptUpdate(key, insert, node, child,
+                            childVersion);
+                    if(result != RETRY_UPDATE)
+                        return result;
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts or deletes the key of node. Deleting a node with fewer than 2
+     * children unlinks it, else it becomes a routing node.
+     */
+    private int attemptNodeUpdate(boolean insert, TreeNode parent,
+                                  TreeNode node) {
+        if(!insert && !node.present)
+            return NOT_UPDATED;
+
+        if(!insert && (node.left == null || node.right == null)) {
+            TreeNode damaged;
+            synchronized(parent) {
+                if(isUnlinked(parent.version) || node.parent != parent)
+                    return RETRY_UPDATE;
+                synchronized(node) {
+                    if(!node.present)
+                        return NOT_UPDATED;
+                    if(!attemptUnlink(parent, node))
+                        return RETRY_UPDATE;
+                }
+                damaged = fixHeight(parent);
+            }
+            fixHeightAndRebalance(damaged);
+            return UPDATED;
+        }
+
+        synchronized(node) {
+            if(isUnlinked(node.version))
+                return RETRY_UPDATE;
+            if(node.present == insert)
+                return NOT_UPDATED;
+            if(!insert && (node.left == null || node.right == null))
+                return RETRY_UPDATE; // can be unlinked now
+            node.present = insert;
+            return UPDATED;
+        }
+    }
+
+    /**
+     * Replaces node by its only child, if it still has at most one. parent
+     * and node must be locked.
+     * @return false if node is no longer a child of parent or has 2
+     * children.
+     */
+    private boolean attemptUnlink(TreeNode parent, TreeNode node) {
+        TreeNode parentLeft = parent.left;
+        if(parentLeft != node && parent.right != node)
+            return false;
+        TreeNode left = node.left;
+        TreeNode right = node.right;
+        if(left != null && right != null)
+            return false;
+        TreeNode splice = left != null ? left : right;
+        if(parentLeft == node)
+            parent.left = splice;
+        else
+            parent.right = splice;
+        if(splice != null)
+            splice.parent = parent;
+        node.version = UNLINKED;
+        node.present = false;
+        return true;
+    }
+
+    /**
+     * @return UNLINK_REQUIRED, REBALANCE_REQUIRED, NOTHING_REQUIRED, or the
+     * height node should have.
+     * Any thread that changes a node fixes it afterwards, so if the reads
+     * here are not consistent the node is some other thread's problem.
+     */
+    private static int nodeCondition(TreeNode node) {
+        TreeNode left = node.left;
+        TreeNode right = node.right;
+        if((left == null || right == null) && !node.present)
+            return UNLINK_REQUIRED;
+        int height = node.height;
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        int newHeight = 1 + Math.max(leftHeight, rightHeight);
+        int balance = leftHeight - rightHeight;
+        if(balance < -1 || balance > 1)
+            return REBALANCE_REQUIRED;
+        return height != newHeight ? newHeight : NOTHING_REQUIRED;
+    }
+
+    /**
+     * Fixes node and its ancestors until nothing more is needed. A repair
+     * that damages more than one node continues with the deepest, and leaves
+     * the others in pending to be checked once it is done.
+     */
+    private void fixHeightAndRebalance(TreeNode node) {
+        ArrayDeque<TreeNode> pending = null; // created by the first rebalance
+        while(true) {
+            if(node == null || node.parent == null) {
+                if(pending == null || pending.isEmpty())
+                    return;
+                node = pending.pop();
+                continue;
+            }
+            int condition = nodeCondition(node);
+            if(condition == NOTHING_REQUIRED || isUnlinked(node.version)) {
+                node = null; // nothing to do, or no point in fixing it
+                continue;
+            }
+            if(condition != UNLINK_REQUIRED
+                    && condition != REBALANCE_REQUIRED) {
+                synchronized(node) {
+                    node = fixHeight(node);
+                }
+            } else {
+                if(pending == null)
+                    pending = new ArrayDeque<>();
+                TreeNode parent = node.parent;
+                synchronized(parent) {
+                    if(!isUnlinked(parent.version) && node.parent == parent) {
+                        synchronized(node) {
+                            node = rebalance(parent, node, pending);
+                        }
+                    } // else try again
+                }
+            }
+        }
+    }
+
+    /**
+     * Fixes the height of a locked node.
+     * @return the next node to fix, or null if nothing more is needed.
+     */
+    private TreeNode fixHeight(TreeNode node) {
+        int condition = nodeCondition(node);
+        if(condition == REBALANCE_REQUIRED || condition == UNLINK_REQUIRED)
+            return node;
+        if(condition == NOTHING_REQUIRED)
+            return null;
+        node.height = condition;
+        return node.parent;
+    }
+
+    /**
+     * Unlinks or rotates node, which must be locked with its parent.
+     * @return the next node to fix, or null if nothing more is needed.
+     */
+    private TreeNode rebalance(TreeNode parent, TreeNode node,
+                               Deque<TreeNode> pending) {
+        if(isUnlinked(node.version))
+            return null;
+        TreeNode left = node.left;
+        TreeNode right = node.right;
+        if((left == null || right == null) && !node.present) {
+            if(attemptUnlink(parent, node))
+                return fixHeight(parent);
+            return node;
+        }
+
+        int height = node.height;
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        int newHeight = 1 + Math.max(leftHeight, rightHeight);
+        int balance = leftHeight - rightHeight;
+        if(balance > 1)
+            return rebalanceToRight(parent, node, left, rightHeight,
+                    pending);
+        else if(balance < -1)
+            return rebalanceToLeft(parent, node, right, leftHeight,
+                    pending);
+        else if(newHeight != height) {
+            node.height = newHeight;
+            return fixHeight(parent);
+        }
+        return null;
+    }
+
+    // Left subtree of n too high: rotate right, after rotating nL left if
+    // nL.right is the higher side of nL
+    private TreeNode rebalanceToRight(TreeNode nParent, TreeNode n,
+                                      TreeNode nL, int hR,
+                                      Deque<TreeNode> pending) {
+        synchronized(nL) {
+            if(nL.height - hR <= 1)
+                return n; // changed since it was read, try again
+            TreeNode nLR = nL.right;
+            int hLL = height(nL.left);
+            int hLR = height(nLR);
+            if(hLL >= hLR)
+                return rotateRight(nParent, n, nL, hR, hLL, nLR, hLR,
+                        pending);
+            synchronized(nLR) {
+                hLR = nLR.height;
+                if(hLL >= hLR)
+                    return rotateRight(nParent, n, nL, hR, hLL, nLR, hLR,
+                            pending);
+                // Double rotation only if it leaves nL balanced and not a
+                // routing node to unlink, else nL is rotated on its own
+                // and n is left in pending
+                int hLRL = height(nLR.left);
+                int balance = hLL - hLRL;
+                if(balance >= -1 && balance <= 1
+                        && !((hLL == 0 || hLRL == 0) && !nL.present))
+                    return rotateRightOverLeft(nParent, n, nL, hR, hLL, nLR,
+                            hLRL, pending);
+                return rotateLeft(n, nL, nLR, hLL, height(nLR.right),
+                        nLR.left, hLRL, pending);
+            }
+        }
+    }
+
+    // Mirror of rebalanceToRight
+    private TreeNode rebalanceToLeft(TreeNode nParent, TreeNode n,
+                                     TreeNode nR, int hL,
+                                     Deque<TreeNode> pending) {
+        synchronized(nR) {
+            if(hL - nR.height >= -1)
+                return n; // changed since it was read, try again
+            TreeNode nRL = nR.left;
+            int hRR = height(nR.right);
+            int hRL = height(nRL);
+            if(hRR >= hRL)
+                return rotateLeft(nParent, n, nR, hL, hRR, nRL, hRL,
+                        pending);
+            synchronized(nRL) {
+                hRL = nRL.height;
+                if(hRR >= hRL)
+                    return rotateLeft(nParent, n, nR, hL, hRR, nRL, hRL,
+                            pending);
+                int hRLR = height(nRL.right);
+                int balance = hRR - hRLR;
+                if(balance >= -1 && balance <= 1
+                        && !((hRR == 0 || hRLR == 0) && !nR.present))
+                    return rotateLeftOverRight(nParent, n, nR, hL, hRR, nRL,
+                            hRLR, pending);
+                return rotateRight(n, nR, nRL, height(nRL.left), hRR,
+                        nRL.right, hRLR, pending);
+            }
+        }
+    }
+
+    /**
+     * Rotates n right. nParent, n and nL must be locked. n shrinks, so it
+     * is marked while the links change.
+     * The new root of the subtree and nParent are left in pending, so they
+     * are checked even if the deeper damage stops being repaired before
+     * reaching them.
+     * @return the next node to fix, or null if nothing more is needed.
+     */
+    private TreeNode rotateRight(TreeNode nParent, TreeNode n, TreeNode nL,
+                                 int hR, int hLL, TreeNode nLR, int hLR,
+                                 Deque<TreeNode> pending) {
+        countRotation();
+        pending.push(nParent);
+        pending.push(nL);
+        long version = n.version;
+        TreeNode nPL = nParent.left;
+        n.version = version | SHRINKING;
+
+        n.left = nLR;
+        if(nLR != null)
+            nLR.parent = n;
+        nL.right = n;
+        n.parent = nL;
+        if(nPL == n)
+            nParent.left = nL;
+        else
+            nParent.right = nL;
+        nL.parent = nParent;
+
+        int hN = 1 + Math.max(hLR, hR);
+        n.height = hN;
+        nL.height = 1 + Math.max(hLL, hN);
+        n.version = version + SHRINK_COUNT;
+
+        // Fix what can be fixed with the locks held, n first as it is the
+        // deepest
+        int balanceN = hLR - hR;
+        if(balanceN < -1 || balanceN > 1)
+            return n;
+        if((nLR == null || hR == 0) && !n.present)
+            return n;
+        int balanceL = hLL - hN;
+        if(balanceL < -1 || balanceL > 1)
+            return nL;
+        if(hLL == 0 && !nL.present)
+            return nL;
+        return fixHeight(nParent);
+    }
+
+    // Mirror of rotateRight
+    private TreeNode rotateLeft(TreeNode nParent, TreeNode n, TreeNode nR,
+                                int hL, int hRR, TreeNode nRL, int hRL,
+                                Deque<TreeNode> pending) {
+        countRotation();
+        pending.push(nParent);
+        pending.push(nR);
+        long version = n.version;
+        TreeNode nPL = nParent.left;
+        n.version = version | SHRINKING;
+
+        n.right = nRL;
+        if(nRL != null)
+            nRL.parent = n;
+        nR.left = n;
+        n.parent = nR;
+        if(nPL == n)
+            nParent.left = nR;
+        else
+            nParent.right = nR;
+        nR.parent = nParent;
+
+        int hN = 1 + Math.max(hL, hRL);
+        n.height = hN;
+        nR.height = 1 + Math.max(hN, hRR);
+        n.version = version + SHRINK_COUNT;
+
+        int balanceN = hRL - hL;
+        if(balanceN < -1 || balanceN > 1)
+            return n;
+        if((nRL == null || hL == 0) && !n.present)
+            return n;
+        int balanceR = hRR - hN;
+        if(balanceR < -1 || balanceR > 1)
+            return nR;
+        if(hRR == 0 && !nR.present)
+            return nR;
+        return fixHeight(nParent);
+    }
+
+    /**
+     * Rotates nL left, then n right. nParent, n, nL and nLR must be locked.
+     * n and nL shrink. Leaves nLR and nParent in pending.
+     * @return the next node to fix, or null if nothing more is needed.
+     */
+    private TreeNode rotateRightOverLeft(TreeNode nParent, TreeNode n,
+                                         TreeNode nL, int hR, int hLL,
+                                         TreeNode nLR, int hLRL,
+                                         Deque<TreeNode> pending) {
+        countRotation();
+        countRotation();
+        pending.push(nParent);
+        pending.push(nLR);
+        long version = n.version;
+        long leftVersion = nL.version;
+        TreeNode nPL = nParent.left;
+        TreeNode nLRL = nLR.left;
+        TreeNode nLRR = nLR.right;
+        int hLRR = height(nLRR);
+        n.version = version | SHRINKING;
+        nL.version = leftVersion | SHRINKING;
+
+        n.left = nLRR;
+        if(nLRR != null)
+            nLRR.parent = n;
+        nL.right = nLRL;
+        if(nLRL != null)
+            nLRL.parent = nL;
+        nLR.left = nL;
+        nL.parent = nLR;
+        nLR.right = n;
+        n.parent = nLR;
+        if(nPL == n)
+            nParent.left = nLR;
+        else
+            nParent.right = nLR;
+        nLR.parent = nParent;
+
+        int hN = 1 + Math.max(hLRR, hR);
+        n.height = hN;
+        int hLNew = 1 + Math.max(hLL, hLRL);
+        nL.height = hLNew;
+        nLR.height = 1 + Math.max(hLNew, hN);
+        n.version = version + SHRINK_COUNT;
+        nL.version = leftVersion + SHRINK_COUNT;
+
+        int balanceN = hLRR - hR;
+        if(balanceN < -1 || balanceN > 1)
+            return n;
+        if((nLRR == null || hR == 0) && !n.present)
+            return n;
+        int balanceLR = hLNew - hN;
+        if(balanceLR < -1 || balanceLR > 1)
+            return nLR;
+        return fixHeight(nParent);
+    }
+
+    // Mirror of rotateRightOverLeft
+    private TreeNode rotateLeftOverRight(TreeNode nParent, TreeNode n,
+                                         TreeNode nR, int hL, int hRR,
+                                         TreeNode nRL, int hRLR,
+                                         Deque<TreeNode> pending) {
+        countRotation();
+        countRotation();
+        pending.push(nParent);
+        pending.push(nRL);
+        long version = n.version;
+        long rightVersion = nR.version;
+        TreeNode nPL = nParent.left;
+        TreeNode nRLL = nRL.left;
+        TreeNode nRLR = nRL.right;
+        int hRLL = height(nRLL);
+        n.version = version | SHRINKING;
+        nR.version = rightVersion | SHRINKING;
+
+        n.right = nRLL;
+        if(nRLL != null)
+            nRLL.parent = n;
+        nR.left = nRLR;
+        if(nRLR != null)
+            nRLR.parent = nR;
+        nRL.right = nR;
+        nR.parent = nRL;
+        nRL.left = n;
+        n.parent = nRL;
+        if(nPL == n)
+            nParent.left = nRL;
+        else
+            nParent.right = nRL;
+        nRL.parent = nParent;
+
+        int hN = 1 + Math.max(hL, hRLL);
+        n.height = hN;
+        int hRNew = 1 + Math.max(hRLR, hRR);
+        nR.height = hRNew;
+        nRL.height = 1 + Math.max(hN, hRNew);
+        n.version = version + SHRINK_COUNT;
+        nR.version = rightVersion + SHRINK_COUNT;
+
+        int balanceN = hRLL - hL;
+        if(balanceN < -1 || balanceN > 1)
+            return n;
+        if((nRLL == null || hL == 0) && !n.present)
+            return n;
+        int balanceRL = hRNew - hN;
+        if(balanceRL < -1 || balanceRL > 1)
+            return nRL;
+        return fixHeight(nParent);
+    }
+
+    private void countRotation() {
+        TreeMetrics metrics = this.metrics;
+        if(metrics != null)
+            metrics.rotation();
+    }
+
+    private static int height(TreeNode node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static boolean isUnlinked(long version) {
+        return (version & UNLINKED) != 0;
+    }
+
+    private static boolean isShrinkingOrUnlinked(long version) {
+        return (version & (SHRINKING | UNLINKED)) != 0;
+    }
+}
@@ -57,13 +57,12 @@ public class Heap {
         int left = (2 * index) + 1;
         int right = (2 * index) + 2;
         int child;
-        if(left >= heap.length) // only left child
+        if(left >= heap.length) // if no children
             return heap;
-        else if(right >= heap.length)
-            child = heap[right];
+        else if(right >= heap.length) // if only have left child
+            child = left;
         else
-            child = (heap[left] < heap[right]) ? heap[left] :
-                    heap[right];
+            child = (heap[left] < heap[right]) ? left : right;
 
         if (heap[child] < heap[index]) {
             Heap.swap(child, index, heap);
@@ -78,7 +77,7 @@ public class Heap {
      * @param key Element to be inserted.
      */
     public void insert(int key) {
-        if(this.arr.length >= this.size)
+        if(this.size == this.arr.length)
             this.reHeapify();
 
         this.arr[size++] = key;
@@ -132,10 +131,10 @@ public class Heap {
         if(left >= this.size) // if no children
             return;
         else if(right >= this.size)  // if only have left child
-            child = this.arr[left];
+            child = left;
         else
-            child = (this.arr[left] < this.arr[right]) ? this.arr[left] :
-                this.arr[right]; // Take child with the higher priority
+            child = (this.arr[left] < this.arr[right]) ? left : right; // Take
+            // child with the higher priority
 
         if(this.arr[child] < this.arr[index]) {
             Heap.swap(child, index, this.arr);
@@ -154,7 +153,7 @@ public class Heap {
      * of thc current Heap into a new Heap array.
      */
     private void reHeapify() {
-        int[] newArray = new int[this.size * 2];
+        int[] newArray = new int[Math.max(this.size * 2, 1)];
         for(int i = 0; i < this.size; i++)
             newArray[i] = this.arr[i];
 
@@ -0,0 +1,301 @@
+import java.util.*;
+
+/**
+ * AVL tree of int keys stored in a pool of ints instead of Node objects.
+ * Each node is a record of NODE_INTS consecutive ints, its key, left child,
+ * right child and height, and is referred to by the index of its record, so
+ * a node costs 16 bytes and reading it touches a single cache line.
+ * Index 0 is a sentinel for a missing child, with height 0, so heights are
+ * read without checking for null.
+ * Deleted nodes are kept in a free list linked through their left child,
+ * and reused by later inserts. The pool only grows, by doubling, so once it
+ * is large enough insert, delete and search allocate nothing.
+ * All operations are iterative: the nodes on the path from the root are kept
+ * in a stack, and rebalanced from the bottom up after an update, stopping
+ * at the first subtree whose height did not change.
+ * Duplicate keys not allowed.
+ */
+public class IntAVLTree {
+
+    private static final int KEY = 0; // offsets of the fields of a node
+    private static final int LEFT = 1;
+    private static final int RIGHT = 2;
+    private static final int HEIGHT = 3;
+    private static final int NODE_INTS = 4;
+    private static final int NIL = 0; // missing child
+    private static final int MAX_DEPTH = 64; // an AVL tree of 2^31 nodes is
+    // less than 46 levels high
+
+    private int[] nodes; // node records, the first is the sentinel
+    private int root = NIL;
+    private int size; // number of keys in the tree
+    private int used = NODE_INTS; // ints of the pool ever handed out
+    private int free = NIL; // first node of the free list
+    private final int[] path = new int[MAX_DEPTH]; // nodes from the root to
+    // the node being updated
+    private TreeMetrics metrics; // told about rotations and heights when set
+
+    IntAVLTree() {
+        this(16);
+    }
+
+    /**
+     * @param capacity Number of keys the tree can hold before growing.
+     */
+    IntAVLTree(int capacity) {
+        this.nodes = new int[(Math.max(capacity, 1) + 1) * NODE_INTS];
+    }
+
+    /**
+     * Method that sets the listener told about rotations and heights, or
+     * null to stop reporting.
+     */
+    public void setMetrics(TreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public int size() { return this.size; }
+    public boolean isEmpty() { return this.size == 0; }
+
+    /**
+     * @return the height of the tree, 0 if empty.
+     */
+    public int getHeight() { return this.nodes[this.root + HEIGHT]; }
+
+    /**
+     * Method that removes every key. The pool is kept.
+     */
+    public void clear() {
+        this.root = NIL;
+        this.size = 0;
+        this.used = NODE_INTS;
+        this.free = NIL;
+    }
+
+    /**
+     * Method that finds if the key is in the tree.
+     * @param key Value to be searched in the tree.
+     * @return True if the value is present, False otherwise.
+     */
+    public boolean search(int key) {
+        int[] nodes = this.nodes;
+        int node = this.root;
+        while(node != NIL) {
+            int nodeKey = nodes[node + KEY];
+            if(key == nodeKey)
+                return true;
+            node = nodes[node + (key < nodeKey ? LEFT : RIGHT)];
+        }
+        return false;
+    }
+
+    /**
+     * Method that inserts a new key into the tree.
+     * @param key Value to be inserted
+     * @return true if the key was added, false if it was already present.
+     */
+    public boolean insert(int key) {
+        int depth = 0;
+        int node = this.root;
+        while(node != NIL) {
+            int nodeKey = this.nodes[node + KEY];
+            if(key == nodeKey)
+                return false;
+            this.path[depth++] = node;
+            node = this.nodes[node + (key < nodeKey ? LEFT : RIGHT)];
+        }
+
+        int added = allocate(key);
+        if(depth == 0)
+            this.root = added;
+        else {
+            int parent = this.path[depth - 1];
+            this.nodes[parent + (key < this.nodes[parent + KEY] ? LEFT
+                    : RIGHT)] = added;
+        }
+        this.size++;
+        rebalance(depth);
+        return true;
+    }
+
+    /**
+     * Method that deletes a key from the tree.
+     * @param key Value to be deleted
+     * @return true if the key was removed, false if it was not present.
+     */
+    public boolean delete(int key) {
+        int[] nodes = this.nodes;
+        int depth = 0;
+        int node = this.root;
+        while(node != NIL && nodes[node + KEY] != key) {
+            this.path[depth++] = node;
+            node = nodes[node + (key < nodes[node + KEY] ? LEFT : RIGHT)];
+        }
+        if(node == NIL) // key not in the tree
+            return false;
+
+        int removed = node; // node taken out of the tree
+        int replacement; // subtree that takes its place
+        if(nodes[node + LEFT] == NIL)
+            replacement = nodes[node + RIGHT];
+        else if(nodes[node + RIGHT] == NIL)
+            replacement = nodes[node + LEFT];
+        else {
+            // Replace the key with the In-Order predecessor, and take the
+            // predecessor out instead. It has no right child.
+            this.path[depth++] = node;
+            removed = nodes[node + LEFT];
+            while(nodes[removed + RIGHT] != NIL) {
+                this.path[depth++] = removed;
+                removed = nodes[removed + RIGHT];
+            }
+            nodes[node + KEY] = nodes[removed + KEY];
+            replacement = nodes[removed + LEFT];
+        }
+
+        if(depth == 0)
+            this.root = replacement;
+        else
+            replaceChild(this.path[depth - 1], removed, replacement);
+        release(removed);
+        this.size--;
+        rebalance(depth);
+        return true;
+    }
+
+    /**
+     * Method that gets every key in ascending order.
+     * @return a new array with the keys.
+     */
+    public int[] toArray() {
+        int[] result = new int[this.size];
+        int count = 0;
+        int depth = 0;
+        int node = this.root;
+        while(node != NIL || depth > 0) {
+            while(node != NIL) {
+                this.path[depth++] = node;
+                node = this.nodes[node + LEFT];
+            }
+            node = this.path[--depth];
+            result[count++] = this.nodes[node + KEY];
+            node = this.nodes[node + RIGHT];
+        }
+        return result;
+    }
+
+    /**
+     * Updates the heights of path[depth - 1] up to the root and rotates
+     * where the balance property is broken. Stops once a subtree keeps the
+     * height it had before the update, as nothing above it changes.
+     */
+    private void rebalance(int depth) {
+        for(int i = depth - 1; i >= 0; i--) {
+            int node = this.path[i];
+            int oldHeight = this.nodes[node + HEIGHT];
+            updateHeight(node);
+            int balanced = balance(node);
+            if(this.metrics != null)
+                this.metrics.height(this.nodes[balanced + HEIGHT]);
+            if(balanced != node) {
+                if(i == 0)
+                    this.root = balanced;
+                else
+                    replaceChild(this.path[i - 1], node, balanced);
+            }
+            if(this.nodes[balanced + HEIGHT] == oldHeight)
+                return;
+        }
+    }
+
+    // Makes replacement the child of parent in place of child
+    private void replaceChild(int parent, int child, int replacement) {
+        if(this.nodes[parent + LEFT] == child)
+            this.nodes[parent + LEFT] = replacement;
+        else
+            this.nodes[parent + RIGHT] = replacement;
+    }
+
+    /**
+     * Does the appropriate rotation if difference in height between the 2
+     * subtrees of node is greater than 1.
+     * @return the root of the balanced subtree.
+     */
+    private int balance(int node) {
+        int left = this.nodes[node + LEFT];
+        int right = this.nodes[node + RIGHT];
+        int diff = height(left) - height(right);
+        if(diff > 1) { // Left subtree higher than right
+            if(height(this.nodes[left + LEFT])
+                    < height(this.nodes[left + RIGHT])) // left right case
+                this.nodes[node + LEFT] = rotateLeft(left);
+            return rotateRight(node);
+        } else if(diff < -1) { // Right subtree higher than left
+            if(height(this.nodes[right + RIGHT])
+                    < height(this.nodes[right + LEFT])) // right left case
+                this.nodes[node + RIGHT] = rotateRight(right);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private int rotateLeft(int node) {
+        if(this.metrics != null)
+            this.metrics.rotation();
+        int newRoot = this.nodes[node + RIGHT];
+        this.nodes[node + RIGHT] = this.nodes[newRoot + LEFT];
+        this.nodes[newRoot + LEFT] = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    private int rotateRight(int node) {
+        if(this.metrics != null)
+            this.metrics.rotation();
+        int newRoot = this.nodes[node + LEFT];
+        this.nodes[node + LEFT] = this.nodes[newRoot + RIGHT];
+        this.nodes[newRoot + RIGHT] = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    private int height(int node) {
+        return this.nodes[node + HEIGHT];
+    }
+
+    private void updateHeight(int node) {
+        this.nodes[node + HEIGHT] = 1 + Math.max(
+                height(this.nodes[node + LEFT]),
+                height(this.nodes[node + RIGHT]));
+    }
+
+    // Takes a node from the free list, or a new record, growing the pool if
+    // it is full
+    private int allocate(int key) {
+        int node = this.free;
+        if(node != NIL)
+            this.free = this.nodes[node + LEFT];
+        else {
+            if(this.used == this.nodes.length) {
+                if(this.nodes.length > Integer.MAX_VALUE / 2)
+                    throw new IllegalStateException("Tree is full");
+                this.nodes = Arrays.copyOf(this.nodes,
+                        this.nodes.length * 2);
+            }
+            node = this.used;
+            this.used += NODE_INTS;
+        }
+        this.nodes[node + KEY] = key;
+        this.nodes[node + LEFT] = NIL;
+        this.nodes[node + RIGHT] = NIL;
+        this.nodes[node + HEIGHT] = 1;
+        return node;
+    }
+
+    private void release(int node) {
+        this.nodes[node + LEFT] = this.free;
+        this.free = node;
+    }
+}
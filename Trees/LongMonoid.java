@@ -0,0 +1,48 @@
+/**
+ * Associative operation on longs with an identity, used by AugmentedAVLTree
+ * to keep an aggregate of the keys of every subtree.
+ * combine need not be commutative: keys are always combined in ascending
+ * order.
+ */
+public interface LongMonoid {
+
+    /**
+     * Adds the keys, the default aggregate of AugmentedAVLTree.
+     */
+    LongMonoid SUM = new LongMonoid() {
+        public long identity() { return 0; }
+        public long combine(long left, long right) { return left + right; }
+    };
+
+    /**
+     * Smallest key, Long.MAX_VALUE if there are none.
+     */
+    LongMonoid MIN = new LongMonoid() {
+        public long identity() { return Long.MAX_VALUE; }
+        public long combine(long left, long right) {
+            return Math.min(left, right);
+        }
+    };
+
+    /**
+     * Largest key, Long.MIN_VALUE if there are none.
+     */
+    LongMonoid MAX = new LongMonoid() {
+        public long identity() { return Long.MIN_VALUE; }
+        public long combine(long left, long right) {
+            return Math.max(left, right);
+        }
+    };
+
+    /**
+     * @return the aggregate of no keys, such that combine(identity(), x) ==
+     * combine(x, identity()) == x.
+     */
+    long identity();
+
+    /**
+     * @return the aggregate of the keys of left followed by the keys of
+     * right.
+     */
+    long combine(long left, long right);
+}
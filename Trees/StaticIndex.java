@@ -0,0 +1,151 @@
+/**
+ * Immutable set of int keys laid out for fast lookups, for when a tree is
+ * built once and then only searched.
+ *
+ * The keys are stored in Eytzinger order: keys[1] is the root of a complete
+ * binary search tree and the children of keys[k] are keys[2k] and
+ * keys[2k + 1], so there are no pointers and the first levels of the tree
+ * are packed into the first few cache lines, which stay cached across
+ * lookups. Each search walks down the whole height with
+ * k = 2k + (keys[k] < key), a step the JIT compiles to a conditional move
+ * rather than a branch that would be mispredicted half the time. The path
+ * taken is spelled by the bits of the final k, so the answer is recovered
+ * from it at the end:
+ * - ceiling is the last node where the search went left, found by dropping
+ * the trailing 1 bits of k and the 0 before them.
+ * - floor, searching with keys[k] <= key, is the last node where it went
+ * right, found by dropping the trailing 0 bits and the 1 before them.
+ * Index 0 stands for no such key. rank looks up the position of the ceiling
+ * in ascending order, kept in a parallel array.
+ */
+public class StaticIndex {
+
+    public static final long NOT_FOUND = Long.MIN_VALUE; // result of floor
+    // and ceiling when there is no such key
+
+    private final int[] keys; // Eytzinger order from index 1
+    private final int[] ranks; // ranks[k] is the position of keys[k] in
+    // ascending order, ranks[0] the number of keys
+    private final int size;
+
+    /**
+     * @param sorted Keys in strictly ascending order.
+     */
+    StaticIndex(int[] sorted) {
+        for(int i = 1; i < sorted.length; i++)
+            if(sorted[i - 1] >= sorted[i])
+                throw new IllegalArgumentException(
+                        "Keys must be strictly ascending");
+        if(sorted.length >= 1 << 30) // 2k + 1 must not overflow
+            throw new IllegalArgumentException("Too many keys");
+        this.size = sorted.length;
+        this.keys = new int[this.size + 1];
+        this.ranks = new int[this.size + 1];
+        this.ranks[0] = this.size;
+        fill(sorted, 0, 1);
+    }
+
+    /**
+     * Freezes the keys of an AVLTree.
+     * @param root Root of the tree, null if empty. The tree is not changed.
+     */
+    StaticIndex(Node root) {
+        this(toArray(root));
+    }
+
+    public int size() { return this.size; }
+    public boolean isEmpty() { return this.size == 0; }
+
+    /**
+     * Method that finds if the key is in the index.
+     * @param key Value to be searched.
+     * @return True if the value is present, False otherwise.
+     */
+    public boolean search(int key) {
+        int k = lowerBound(key);
+        return k != 0 && this.keys[k] == key;
+    }
+
+    /**
+     * @return the largest key <= key, or NOT_FOUND.
+     */
+    public long floor(int key) {
+        int[] keys = this.keys;
+        int n = this.size;
+        int k = 1;
+        while(k <= n)
+            k = 2 * k + (keys[k] <= key ? 1 : 0);
+        k >>>= Integer.numberOfTrailingZeros(k) + 1;
+        return k == 0 ? NOT_FOUND : keys[k];
+    }
+
+    /**
+     * @return the smallest key >= key, or NOT_FOUND.
+     */
+    public long ceiling(int key) {
+        int k = lowerBound(key);
+        return k == 0 ? NOT_FOUND : this.keys[k];
+    }
+
+    /**
+     * Method that counts the keys smaller than key, which is the position
+     * key has, or would have, in ascending order.
+     * @return the rank of key, from 0 to size().
+     */
+    public int rank(int key) {
+        return this.ranks[lowerBound(key)];
+    }
+
+    /**
+     * Method that gets every key in ascending order.
+     * @return a new array with the keys.
+     */
+    public int[] toArray() {
+        int[] result = new int[this.size];
+        for(int k = 1; k <= this.size; k++)
+            result[this.ranks[k]] = this.keys[k];
+        return result;
+    }
+
+    // Index of the smallest key >= key, 0 if there is none
+    private int lowerBound(int key) {
+        int[] keys = this.keys;
+        int n = this.size;
+        int k = 1;
+        while(k <= n)
+            k = 2 * k + (keys[k] < key ? 1 : 0);
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * Places sorted[next] onwards in the subtree rooted at k, In-Order.
+     * @return the index in sorted of the first key not placed.
+     */
+    private int fill(int[] sorted, int next, int k) {
+        if(k > this.size)
+            return next;
+        next = fill(sorted, next, 2 * k);
+        this.keys[k] = sorted[next];
+        this.ranks[k] = next;
+        return fill(sorted, next + 1, 2 * k + 1);
+    }
+
+    private static int[] toArray(Node root) {
+        int[] sorted = new int[count(root)];
+        collect(root, sorted, 0);
+        return sorted;
+    }
+
+    private static int count(Node node) {
+        return node == null ? 0 : 1 + count(node.left) + count(node.right);
+    }
+
+    // Copies the keys of node In-Order from sorted[next]
+    private static int collect(Node node, int[] sorted, int next) {
+        if(node == null)
+            return next;
+        next = collect(node.left, sorted, next);
+        sorted[next] = node.value;
+        return collect(node.right, sorted, next + 1);
+    }
+}
@@ -0,0 +1,35 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TreeMetrics that adds everything up in striped counters (LongAdder), so
+ * threads reporting at the same time do not contend on one counter.
+ */
+public class StripedTreeMetrics implements TreeMetrics {
+
+    private final LongAdder rotations = new LongAdder();
+    private final LongAccumulator maxHeight = new LongAccumulator(Math::max,
+            0);
+
+    public void rotation() {
+        this.rotations.increment();
+    }
+
+    public void height(int height) {
+        this.maxHeight.accumulate(height);
+    }
+
+    public long getRotations() { return this.rotations.sum(); }
+    public long getMaxHeight() { return this.maxHeight.get(); }
+
+    // Sets every counter back to 0
+    public void reset() {
+        this.rotations.reset();
+        this.maxHeight.reset();
+    }
+
+    public String toString() {
+        return "[rotations: " + getRotations() + ", max height: "
+                + getMaxHeight() + "]";
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * Listener that tree structures report their work to. Give one to a tree
+ * with setMetrics. When no listener is set nothing is counted.
+ * Implementations may be called from many threads at once.
+ */
+public interface TreeMetrics {
+
+    /**
+     * Called for every single rotation. A double rotation calls it twice.
+     */
+    void rotation();
+
+    /**
+     * Called with the height of each subtree rebalanced by an update, so the
+     * largest value reported is the height of the tree.
+     */
+    void height(int height);
+}
@@ -0,0 +1,32 @@
+/**
+ * Result of splitting an AVL tree at a key: the tree of the keys smaller
+ * than it, the tree of the keys larger than it, and whether the key itself
+ * was in the tree.
+ */
+public class TreeSplit {
+
+    private final Node left;
+    private final boolean found;
+    private final Node right;
+
+    TreeSplit(Node left, boolean found, Node right) {
+        this.left = left;
+        this.found = found;
+        this.right = right;
+    }
+
+    /**
+     * @return the root of the tree of smaller keys, null if there are none.
+     */
+    public Node getLeft() { return this.left; }
+
+    /**
+     * @return true if the key split at was in the tree.
+     */
+    public boolean isFound() { return this.found; }
+
+    /**
+     * @return the root of the tree of larger keys, null if there are none.
+     */
+    public Node getRight() { return this.right; }
+}